@@ -0,0 +1,135 @@
+package com.cnblogs.hoojo.sensitivewords.common;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 字符折叠表
+ * <p>
+ * 使用 65536 长度的 char 数组把每个字符映射为规范字符，用于识别全角字符、大小写、繁简字等变体写法。
+ * 折叠是逐字符一一对应的，折叠后的内容与原内容长度相同、位置一一对应，
+ * 在折叠后的内容上得到的命中位置可以直接用于改写原内容。
+ * <p>
+ * 内置规则：大写字母转为小写，全角 ASCII 字符和全角空格转为半角；
+ * 其余映射来自配置文件，默认使用类路径下的 {@link #DEFAULT_RESOURCE}。
+ */
+public final class CharFolder {
+
+    public static final String DEFAULT_RESOURCE = "char-fold.txt";
+
+    private static final char FULL_WIDTH_START = '！';
+    private static final char FULL_WIDTH_END = '～';
+    private static final int FULL_WIDTH_OFFSET = FULL_WIDTH_START - '!';
+    private static final char IDEOGRAPHIC_SPACE = '　';
+
+    private final char[] table;
+
+    private CharFolder(char[] table) {
+        this.table = table;
+    }
+
+    /**
+     * 内置规则加上默认配置文件
+     */
+    public static CharFolder defaults() {
+        try {
+            return build(Resources.asCharSource(Resources.getResource(DEFAULT_RESOURCE), StandardCharsets.UTF_8).openStream());
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("加载字符折叠配置失败：%s", DEFAULT_RESOURCE), e);
+        }
+    }
+
+    /**
+     * 内置规则加上指定的配置
+     *
+     * @param config 配置内容，每个词条为两个字符，把第一个字符折叠为第二个字符；词条之间用空白分隔，# 开头的行为注释
+     * @return 字符折叠表
+     * @throws IOException 读取配置失败
+     */
+    public static CharFolder build(Reader config) throws IOException {
+        char[] table = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            table[c] = Character.toLowerCase((char) c);
+        }
+        for (char c = FULL_WIDTH_START; c <= FULL_WIDTH_END; c++) {
+            table[c] = table[c - FULL_WIDTH_OFFSET];
+        }
+        table[IDEOGRAPHIC_SPACE] = ' ';
+
+        try (BufferedReader reader = new BufferedReader(config)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                for (String entry : line.split("\\s+")) {
+                    if (entry.length() != 2) {
+                        throw new IllegalArgumentException(String.format("字符折叠配置格式错误：%s", entry));
+                    }
+                    table[entry.charAt(0)] = entry.charAt(1);
+                }
+            }
+        }
+
+        return new CharFolder(table);
+    }
+
+    /**
+     * 只使用内置规则
+     */
+    public static CharFolder builtin() {
+        try {
+            return build(new StringReader(""));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public char fold(char c) {
+        return table[c];
+    }
+
+    /**
+     * 折叠内容，没有需要折叠的字符时返回原内容，不复制
+     */
+    public String fold(String content) {
+        if (content == null) {
+            return null;
+        }
+
+        int length = content.length();
+        int first = 0;
+        while (first < length && table[content.charAt(first)] == content.charAt(first)) {
+            first++;
+        }
+        if (first == length) {
+            return content;
+        }
+
+        char[] chars = content.toCharArray();
+        for (int i = first; i < length; i++) {
+            chars[i] = table[chars[i]];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 折叠关键字分类中的所有词语
+     */
+    public WordsCategory fold(WordsCategory wordsCategory) {
+        List<String> words = Lists.newArrayListWithCapacity(wordsCategory.getWords().size());
+        for (String word : wordsCategory.getWords()) {
+            words.add(fold(word));
+        }
+        return new WordsCategory(wordsCategory.getCategory(), words);
+    }
+}
@@ -1,34 +1,114 @@
 package com.cnblogs.hoojo.sensitivewords.context;
 
 import com.cnblogs.hoojo.sensitivewords.common.ApplicationLogging;
+import com.cnblogs.hoojo.sensitivewords.common.CharFolder;
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.exception.CreateWordsFilterException;
 import com.cnblogs.hoojo.sensitivewords.exception.WordsFilterContextNotInitializedException;
+import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.BatchHits;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterOptions;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterSnapshot;
+import com.cnblogs.hoojo.sensitivewords.filter.HitBuffer;
+import com.cnblogs.hoojo.sensitivewords.filter.HitListener;
+import com.cnblogs.hoojo.sensitivewords.filter.HitRewriter;
+import com.cnblogs.hoojo.sensitivewords.filter.WordsDelta;
 import com.cnblogs.hoojo.sensitivewords.filter.WordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.ac.CombinedAhoCorasick;
+import com.cnblogs.hoojo.sensitivewords.filter.ttmp.TtmpCharTable;
+import com.cnblogs.hoojo.sensitivewords.filter.ttmp.TtmpFilter;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class DefaultWordsFilterContext extends ApplicationLogging implements WordsFilterContext {
 
+    // 快照目录中过滤器快照文件的后缀
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+    // 分类的增量词语数达到该值时在后台合并为新的过滤器
+    public static final int COMPACT_THRESHOLD = 256;
+
     private final FilterType type;
-    private final Map<String, WordsCategory> wordsCategories;
-    private final Map<String, WordsFilter> wordsFilters;
+    private final ScanMode scanMode;
+    // PARALLEL 模式下执行各过滤器的线程池，由调用方管理生命周期
+    private final ExecutorService executor;
+    // 字符折叠表，每次请求只折叠一次，为空时不折叠
+    private final CharFolder folder;
+    // 创建过滤器使用的选项
+    private final FilterOptions options;
+    // 并行构建各分类过滤器的线程池，由调用方管理生命周期
+    private final Executor buildExecutor;
+    // 最近一次构建的各分类耗时（毫秒）
+    private volatile ImmutableMap<String, Long> buildTimes = ImmutableMap.of();
 
-    private DefaultWordsFilterContext(FilterType type, Collection<WordsCategory> wordsCategories) throws CreateWordsFilterException {
-        this.type = type;
-        this.wordsCategories = new ConcurrentSkipListMap<>();
-        this.wordsFilters = new ConcurrentSkipListMap<>();
+    // 当前的上下文快照，变更时在锁内构建新快照后一次替换，读取方不加锁
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    // 正在后台合并增量词语的关键字分类
+    private final Set<String> compacting = ConcurrentHashMap.newKeySet();
+
+    private DefaultWordsFilterContext(FilterType type, ScanMode scanMode, ExecutorService executor, CharFolder folder,
+                                      FilterOptions options, Executor buildExecutor, Collection<WordsCategory> wordsCategories) throws CreateWordsFilterException {
+        this(type, scanMode, executor, folder, options, buildExecutor);
+
+        List<WordsCategory> rawWordSets = Lists.newArrayList(wordsCategories);
+        List<WordsFilter> built = createFilters(rawWordSets);
 
-        for (WordsCategory rawWordSet : wordsCategories) {
-            createOrUpdate(rawWordSet);
+        Map<String, WordsFilter> filters = Maps.newTreeMap();
+        Map<String, WordsCategory> categories = Maps.newTreeMap();
+        for (int i = 0; i < rawWordSets.size(); i++) {
+            putFilter(filters, categories, rawWordSets.get(i), built.get(i));
         }
+        publish(filters, categories);
+    }
+
+    private DefaultWordsFilterContext(FilterType type, ScanMode scanMode, ExecutorService executor, CharFolder folder,
+                                      FilterOptions options, Executor buildExecutor) throws CreateWordsFilterException {
+        if (scanMode == ScanMode.COMBINED && options.isSkipNoise()) {
+            throw new CreateWordsFilterException("COMBINED模式不支持跳过干扰字符");
+        }
+
+        this.type = type;
+        this.scanMode = scanMode;
+        this.executor = executor;
+        this.folder = folder;
+        this.options = options;
+        this.buildExecutor = buildExecutor;
+        this.current.set(new Snapshot(0, scanMode, ImmutableMap.of(), ImmutableMap.of(), null, null));
     }
 
     /**
@@ -40,10 +120,161 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
      * @throws CreateWordsFilterException
      */
     public static DefaultWordsFilterContext build(FilterType type, Collection<WordsCategory> rawWordSets) throws CreateWordsFilterException {
-        DefaultWordsFilterContext context = new DefaultWordsFilterContext(type, rawWordSets);
+        return build(type, rawWordSets, ScanMode.PER_FILTER);
+    }
+
+    /**
+     * 使用指定的类型、词集和扫描方式，创建过滤器上下文实例。PARALLEL 模式使用 {@link ForkJoinPool#commonPool()}
+     *
+     * @param type
+     * @param rawWordSets
+     * @param scanMode
+     * @return 新的独立过滤器上下文
+     * @throws CreateWordsFilterException
+     */
+    public static DefaultWordsFilterContext build(FilterType type, Collection<WordsCategory> rawWordSets, ScanMode scanMode) throws CreateWordsFilterException {
+        return build(type, rawWordSets, scanMode, null);
+    }
+
+    /**
+     * 使用指定的类型、词集、扫描方式和字符折叠表，创建过滤器上下文实例。
+     * 词语和被匹配内容都先经过字符折叠再匹配，filter/highlight 仍然改写原内容，match 返回折叠后的词语
+     *
+     * @param type
+     * @param rawWordSets
+     * @param scanMode
+     * @param folder      字符折叠表，为空时不折叠
+     * @return 新的独立过滤器上下文
+     * @throws CreateWordsFilterException
+     */
+    public static DefaultWordsFilterContext build(FilterType type, Collection<WordsCategory> rawWordSets, ScanMode scanMode, CharFolder folder) throws CreateWordsFilterException {
+        return build(type, rawWordSets, scanMode, folder, FilterOptions.NONE);
+    }
+
+    /**
+     * 使用指定的类型、词集、扫描方式、字符折叠表和过滤器选项，创建过滤器上下文实例
+     *
+     * @param type
+     * @param rawWordSets
+     * @param scanMode
+     * @param folder      字符折叠表，为空时不折叠
+     * @param options     过滤器选项，跳过干扰字符时只支持 DFA、TIRE 类型，且不支持 COMBINED 模式
+     * @return 新的独立过滤器上下文
+     * @throws CreateWordsFilterException
+     */
+    public static DefaultWordsFilterContext build(FilterType type, Collection<WordsCategory> rawWordSets, ScanMode scanMode,
+                                                  CharFolder folder, FilterOptions options) throws CreateWordsFilterException {
+        return build(type, rawWordSets, scanMode, folder, options, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 使用指定的类型、词集、扫描方式、字符折叠表和过滤器选项，创建过滤器上下文实例，
+     * 各分类的过滤器在给定的线程池中并行构建，之后的 reload/update 也使用该线程池
+     *
+     * @param type
+     * @param rawWordSets
+     * @param scanMode
+     * @param folder        字符折叠表，为空时不折叠
+     * @param options       过滤器选项
+     * @param buildExecutor 构建过滤器的线程池，由调用方负责关闭
+     * @return 新的独立过滤器上下文
+     * @throws CreateWordsFilterException 任意分类构建失败，第一个失败为 cause，其余见 {@link Throwable#getSuppressed()}
+     */
+    public static DefaultWordsFilterContext build(FilterType type, Collection<WordsCategory> rawWordSets, ScanMode scanMode,
+                                                  CharFolder folder, FilterOptions options, Executor buildExecutor) throws CreateWordsFilterException {
+        if (buildExecutor == null) {
+            throw new IllegalArgumentException("buildExecutor不能为空");
+        }
+        ExecutorService executor = (scanMode == ScanMode.PARALLEL) ? ForkJoinPool.commonPool() : null;
+        DefaultWordsFilterContext context = new DefaultWordsFilterContext(type, scanMode, executor, folder, options, buildExecutor, rawWordSets);
+        return context;
+    }
+
+    /**
+     * 使用指定的类型和词集，创建 PARALLEL 模式的过滤器上下文实例，各过滤器在给定的线程池中并行构建和执行
+     *
+     * @param type
+     * @param rawWordSets
+     * @param executor    执行过滤器的线程池，由调用方负责关闭
+     * @return 新的独立过滤器上下文
+     * @throws CreateWordsFilterException
+     */
+    public static DefaultWordsFilterContext build(FilterType type, Collection<WordsCategory> rawWordSets, ExecutorService executor) throws CreateWordsFilterException {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor不能为空");
+        }
+        DefaultWordsFilterContext context = new DefaultWordsFilterContext(type, ScanMode.PARALLEL, executor, null, FilterOptions.NONE, executor, rawWordSets);
         return context;
     }
 
+    /**
+     * 从快照目录恢复过滤器上下文，不重新构建过滤器。PARALLEL 模式使用 {@link ForkJoinPool#commonPool()}
+     *
+     * @param directory 由 {@link #saveSnapshot(Path)} 保存的快照目录
+     * @param scanMode
+     * @param folder    字符折叠表，需要与保存快照的上下文一致，为空时不折叠
+     * @return 新的独立过滤器上下文
+     * @throws CreateWordsFilterException 快照读取或校验失败
+     */
+    public static DefaultWordsFilterContext open(Path directory, ScanMode scanMode, CharFolder folder) throws CreateWordsFilterException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX)).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new CreateWordsFilterException(String.format("读取快照目录失败：%s", directory), e);
+        }
+        if (files.isEmpty()) {
+            throw new CreateWordsFilterException(String.format("快照目录中没有快照文件：%s", directory));
+        }
+
+        FilterType type = null;
+        List<WordsFilter> filters = Lists.newArrayListWithCapacity(files.size());
+        for (Path file : files) {
+            FilterSnapshot snapshot;
+            try {
+                snapshot = FilterSnapshot.open(file);
+            } catch (IOException e) {
+                throw new CreateWordsFilterException(String.format("读取快照失败：%s", file), e);
+            }
+
+            FilterType fileType = FilterType.of(snapshot.getType());
+            if (fileType == null || (type != null && type != fileType)) {
+                throw new CreateWordsFilterException(String.format("快照过滤器类型错误：%s, %s", file, snapshot.getType()));
+            }
+            type = fileType;
+            filters.add(buildFilter(type, snapshot));
+        }
+
+        ExecutorService executor = (scanMode == ScanMode.PARALLEL) ? ForkJoinPool.commonPool() : null;
+        DefaultWordsFilterContext context = new DefaultWordsFilterContext(type, scanMode, executor, folder, FilterOptions.NONE, ForkJoinPool.commonPool());
+        Map<String, WordsFilter> filterMap = Maps.newTreeMap();
+        Map<String, WordsCategory> categories = Maps.newTreeMap();
+        for (WordsFilter filter : filters) {
+            context.putFilter(filterMap, categories, filter.getWordsCategory(), filter);
+        }
+        context.publish(filterMap, categories);
+        return context;
+    }
+
+    /**
+     * 从快照创建过滤器实例，过滤器类型需要提供 (FilterSnapshot) 构造函数
+     *
+     * @param filterType
+     * @param snapshot
+     * @return 恢复的过滤器
+     * @throws CreateWordsFilterException
+     */
+    public static WordsFilter buildFilter(FilterType filterType, FilterSnapshot snapshot) throws CreateWordsFilterException {
+        try {
+            Constructor<? extends WordsFilter> constructor = filterType.getClazz().getConstructor(FilterSnapshot.class);
+            return constructor.newInstance(snapshot);
+        } catch (NoSuchMethodException e) {
+            throw new CreateWordsFilterException(String.format("过滤器类型不支持快照：%s", filterType), e);
+        } catch (Exception e) {
+            throw new CreateWordsFilterException("从快照创建WordsFilter对象失败", e);
+        }
+    }
+
     /**
      * 使用指定的类型和词集，创建过滤器实例
      *
@@ -53,9 +284,29 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
      * @throws CreateWordsFilterException
      */
     public static WordsFilter buildFilter(FilterType filterType, WordsCategory wordSet) throws CreateWordsFilterException {
+        return buildFilter(filterType, wordSet, FilterOptions.NONE);
+    }
+
+    /**
+     * 使用指定的类型、词集和过滤器选项，创建过滤器实例
+     *
+     * @param filterType
+     * @param wordSet
+     * @param options    过滤器选项，非默认选项时过滤器类型需要提供 (WordsCategory, FilterOptions) 构造函数
+     * @return 新过滤器
+     * @throws CreateWordsFilterException
+     */
+    public static WordsFilter buildFilter(FilterType filterType, WordsCategory wordSet, FilterOptions options) throws CreateWordsFilterException {
         try {
-            Constructor<? extends WordsFilter> constructor = filterType.getClazz().getConstructor(WordsCategory.class);
-            return constructor.newInstance(wordSet);
+            if (options == FilterOptions.NONE) {
+                Constructor<? extends WordsFilter> constructor = filterType.getClazz().getConstructor(WordsCategory.class);
+                return constructor.newInstance(wordSet);
+            }
+
+            Constructor<? extends WordsFilter> constructor = filterType.getClazz().getConstructor(WordsCategory.class, FilterOptions.class);
+            return constructor.newInstance(wordSet, options);
+        } catch (NoSuchMethodException e) {
+            throw new CreateWordsFilterException(String.format("过滤器类型不支持过滤器选项：%s", filterType), e);
         } catch (Exception e) {
             throw new CreateWordsFilterException("创建WordsFilter对象失败", e);
         }
@@ -67,24 +318,57 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
         }
     }
 
+    private String fold(CharSequence content) {
+        return (folder == null) ? content.toString() : folder.fold(content.toString());
+    }
+
     @Override
     public FilterType getType() {
         return type;
     }
 
+    @Override
+    public ScanMode getScanMode() {
+        return scanMode;
+    }
+
+    @Override
+    public long getVersion() {
+        return current.get().version;
+    }
+
     @Override
     public Set<String> getCategoryNames() {
-        return wordsCategories.keySet();
+        return current.get().categories.keySet();
     }
 
     @Override
     public Set<String> getFilterNames() {
-        return wordsFilters.keySet();
+        return current.get().filterMap.keySet();
+    }
+
+    @Override
+    public Collection<WordsFilter> getFilters() {
+        return current.get().filterMap.values();
+    }
+
+    /**
+     * 最近一次构建（创建上下文、reload、update、createOrUpdate）中各关键字分类的构建耗时
+     *
+     * @return 关键字分类 -> 耗时（毫秒）
+     */
+    public Map<String, Long> getBuildTimes() {
+        return buildTimes;
     }
 
     @Override
     public boolean containsCategory(String category) {
-        return this.wordsCategories.containsKey(category);
+        return current.get().categories.containsKey(category);
+    }
+
+    @Override
+    public WordsFilter getFilter(String category) {
+        return current.get().getFilter(category);
     }
 
     /**
@@ -96,10 +380,411 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
      */
     @Override
     public WordsFilter createOrUpdate(WordsCategory rawWordSet) throws CreateWordsFilterException {
-        WordsFilter wordsFilter = buildFilter(this.type, rawWordSet);
-        this.wordsFilters.put(wordsFilter.getName(), wordsFilter);
+        // 过滤器在锁外构建，只有发布快照时加锁
+        WordsFilter wordsFilter = createFilters(Lists.newArrayList(rawWordSet)).get(0);
+
+        synchronized (this) {
+            Snapshot snapshot = current.get();
+            Map<String, WordsFilter> filters = Maps.newTreeMap(snapshot.filterMap);
+            Map<String, WordsCategory> categories = Maps.newTreeMap(snapshot.categories);
+            putFilter(filters, categories, rawWordSet, wordsFilter);
+            publish(filters, categories);
+        }
+        return wordsFilter;
+    }
 
-        this.wordsCategories.put(rawWordSet.getCategory(), rawWordSet);
+    /**
+     * 使用给定的关键字集整体替换全部过滤器。新过滤器并行构建，构建期间请求继续使用原快照，
+     * 完成后一次发布，请求不会看到新旧词库混合的状态
+     *
+     * @param rawWordSets
+     * @return 新快照的版本号
+     * @throws CreateWordsFilterException 任意分类构建失败时不发布任何变更
+     */
+    public long reload(Collection<WordsCategory> rawWordSets) throws CreateWordsFilterException {
+        List<WordsCategory> wordSets = Lists.newArrayList(rawWordSets);
+        List<WordsFilter> built = createFilters(wordSets);
+
+        Map<String, WordsFilter> filters = Maps.newTreeMap();
+        Map<String, WordsCategory> categories = Maps.newTreeMap();
+        for (int i = 0; i < wordSets.size(); i++) {
+            putFilter(filters, categories, wordSets.get(i), built.get(i));
+        }
+
+        synchronized (this) {
+            return publish(filters, categories).version;
+        }
+    }
+
+    /**
+     * 更新部分关键字分类：构建给定分类的新过滤器并删除指定的分类，其余过滤器保持不变，所有变更一次发布。
+     * 给定的词语替换分类原有的词语，开始构建前的增量词语不保留；构建期间对这些分类的增量修改在发布时转移到新过滤器上
+     *
+     * @param rawWordSets 新增或更新的关键字分类
+     * @param removed     删除的关键字分类
+     * @return 新快照的版本号
+     * @throws CreateWordsFilterException 任意分类构建失败时不发布任何变更
+     */
+    public long update(Collection<WordsCategory> rawWordSets, Collection<String> removed) throws CreateWordsFilterException {
+        Snapshot base = current.get();
+        Map<String, WordsDelta> deltas = Maps.newHashMap();
+        for (WordsCategory rawWordSet : rawWordSets) {
+            WordsFilter filter = base.getFilter(rawWordSet.getCategory());
+            if (filter instanceof BaseWordsFilter) {
+                deltas.put(rawWordSet.getCategory(), ((BaseWordsFilter<?>) filter).getDelta());
+            }
+        }
+        List<WordsFilter> built = createFilters(Lists.newArrayList(rawWordSets));
+
+        synchronized (this) {
+            Snapshot snapshot = current.get();
+            Map<String, WordsFilter> filters = Maps.newTreeMap(snapshot.filterMap);
+            Map<String, WordsCategory> categories = Maps.newTreeMap(snapshot.categories);
+            for (String category : removed) {
+                WordsFilter wordsFilter = snapshot.getFilter(category);
+                if (wordsFilter != null) {
+                    filters.remove(wordsFilter.getName());
+                }
+                categories.remove(category);
+            }
+
+            int i = 0;
+            for (WordsCategory rawWordSet : rawWordSets) {
+                WordsFilter wordsFilter = built.get(i++);
+                String category = rawWordSet.getCategory();
+                WordsFilter previous = snapshot.getFilter(category);
+                // 构建期间分类已被合并或替换时，无法区分构建期间的增量，不再转移
+                if (deltas.containsKey(category) && previous == base.getFilter(category) && wordsFilter instanceof BaseWordsFilter) {
+                    ((BaseWordsFilter<?>) previous).carryDelta(deltas.get(category), (BaseWordsFilter<?>) wordsFilter);
+                }
+                putFilter(filters, categories, rawWordSet, wordsFilter);
+            }
+            return publish(filters, categories).version;
+        }
+    }
+
+    /**
+     * 在给定的线程池中构建新过滤器并整体替换，见 {@link #reload(Collection)}
+     *
+     * @param rawWordSets
+     * @param executor    构建过滤器的线程池
+     * @return 新快照的版本号
+     */
+    public CompletableFuture<Long> reloadAsync(Collection<WordsCategory> rawWordSets, Executor executor) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(reload(rawWordSets));
+            } catch (CreateWordsFilterException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private WordsFilter createFilter(WordsCategory rawWordSet, TtmpCharTable charTable) throws CreateWordsFilterException {
+        WordsCategory wordSet = (folder == null) ? rawWordSet : folder.fold(rawWordSet);
+        if (charTable != null && options == FilterOptions.NONE) {
+            return new TtmpFilter(wordSet, charTable);
+        }
+        return buildFilter(this.type, wordSet, options);
+    }
+
+    /**
+     * 在构建线程池中并行构建各分类的过滤器，结果与参数顺序一致。
+     * 调用线程同样领取分类构建，线程池繁忙或拒绝任务时退化为在调用线程上顺序构建，不会互相等待
+     *
+     * @throws CreateWordsFilterException 任意分类构建失败，第一个失败为 cause，其余见 {@link Throwable#getSuppressed()}
+     */
+    private List<WordsFilter> createFilters(List<WordsCategory> rawWordSets) throws CreateWordsFilterException {
+        int size = rawWordSets.size();
+        WordsFilter[] built = new WordsFilter[size];
+        Throwable[] failures = new Throwable[size];
+        long[] nanos = new long[size];
+        // TTMP 的字符编号表只在同一次构建的分类之间共享，随这些过滤器一起释放
+        TtmpCharTable charTable = (type == FilterType.TTMP) ? new TtmpCharTable() : null;
+
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(size);
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < size; i = next.getAndIncrement()) {
+                long begin = System.nanoTime();
+                try {
+                    built[i] = createFilter(rawWordSets.get(i), charTable);
+                } catch (Throwable e) {
+                    failures[i] = e;
+                } finally {
+                    nanos[i] = System.nanoTime() - begin;
+                    done.countDown();
+                }
+            }
+        };
+
+        long begin = System.nanoTime();
+        int helpers = Math.min(Runtime.getRuntime().availableProcessors(), size) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                buildExecutor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CreateWordsFilterException("等待构建过滤器时线程被中断", e);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        Map<String, Long> times = Maps.newLinkedHashMap();
+        List<String> failed = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            String category = rawWordSets.get(i).getCategory();
+            times.put(category, TimeUnit.NANOSECONDS.toMillis(nanos[i]));
+            if (failures[i] != null) {
+                failed.add(category);
+            }
+        }
+        buildTimes = ImmutableMap.copyOf(times);
+        // 各分类耗时通过 getBuildTimes() 读取，单个分类的构建（createOrUpdate、增量合并、目录加载）不输出 info 日志
+        if (size > 1) {
+            info("构建{}个关键字分类过滤器，耗时{}ms", size, elapsed);
+        }
+        debug("关键字分类过滤器构建耗时：{}", times);
+
+        if (!failed.isEmpty()) {
+            // 第一个失败作为原因，其余的作为被抑制的异常
+            CreateWordsFilterException exception = null;
+            for (Throwable failure : failures) {
+                if (failure == null) {
+                    continue;
+                }
+                if (exception == null) {
+                    exception = new CreateWordsFilterException(String.format("%s个关键字分类构建失败：%s", failed.size(), failed), failure);
+                } else {
+                    exception.addSuppressed(failure);
+                }
+            }
+            throw exception;
+        }
+        return Arrays.asList(built);
+    }
+
+    private void putFilter(Map<String, WordsFilter> filters, Map<String, WordsCategory> categories,
+                           WordsCategory rawWordSet, WordsFilter wordsFilter) throws CreateWordsFilterException {
+        if (scanMode == ScanMode.COMBINED && !categories.containsKey(rawWordSet.getCategory())
+                && categories.size() >= CombinedAhoCorasick.MAX_CATEGORIES) {
+            throw new CreateWordsFilterException(String.format("COMBINED模式最多支持%s个关键字分类", CombinedAhoCorasick.MAX_CATEGORIES));
+        }
+
+        filters.put(wordsFilter.getName(), wordsFilter);
+        categories.put(rawWordSet.getCategory(), rawWordSet);
+    }
+
+    /**
+     * 构建下一个版本的快照并替换当前快照，调用方需要持有上下文锁
+     */
+    private Snapshot publish(Map<String, WordsFilter> filters, Map<String, WordsCategory> categories) {
+        return publish(filters, categories, null);
+    }
+
+    /**
+     * 构建下一个版本的快照并替换当前快照，调用方需要持有上下文锁
+     *
+     * @param compiled 在锁外预先编译的合并自动机，为空时按需编译
+     */
+    private Snapshot publish(Map<String, WordsFilter> filters, Map<String, WordsCategory> categories, CombinedAhoCorasick compiled) {
+        Snapshot previous = current.get();
+        Snapshot next = new Snapshot(previous.version + 1, scanMode, filters, categories, previous, compiled);
+        current.set(next);
+        return next;
+    }
+
+    /**
+     * 过滤器不变，重新发布快照，用于增量词语变更后递增版本号；合并自动机不重新编译
+     */
+    private void republish() {
+        Snapshot snapshot = current.get();
+        publish(snapshot.filterMap, snapshot.categories);
+    }
+
+    /**
+     * 向关键字分类增量添加词语。COMBINED 模式下不重新编译合并自动机，该分类在合并前由自己的过滤器匹配
+     */
+    @Override
+    public synchronized WordsFilter addWords(String category, Collection<String> words) throws CreateWordsFilterException {
+        BaseWordsFilter<?> filter = deltaFilter(category);
+        if (filter == null) {
+            return createOrUpdate(new WordsCategory(category, words));
+        }
+
+        filter.addWords(fold(words));
+        afterDelta(category, filter);
+        return filter;
+    }
+
+    /**
+     * 从关键字分类增量删除词语。COMBINED 模式下不重新编译合并自动机，该分类在合并前由自己的过滤器匹配
+     */
+    @Override
+    public synchronized WordsFilter removeWords(String category, Collection<String> words) {
+        BaseWordsFilter<?> filter = deltaFilter(category);
+        if (filter == null) {
+            return null;
+        }
+
+        filter.removeWords(fold(words));
+        afterDelta(category, filter);
+        return filter;
+    }
+
+    private BaseWordsFilter<?> deltaFilter(String category) {
+        WordsFilter filter = getFilter(category);
+        if (filter != null && !(filter instanceof BaseWordsFilter)) {
+            throw new UnsupportedOperationException(String.format("过滤器不支持增量词语：%s", filter.getName()));
+        }
+        return (BaseWordsFilter<?>) filter;
+    }
+
+    private Collection<String> fold(Collection<String> words) {
+        if (folder == null) {
+            return words;
+        }
+
+        List<String> folded = Lists.newArrayListWithCapacity(words.size());
+        for (String word : words) {
+            folded.add(folder.fold(word));
+        }
+        return folded;
+    }
+
+    private void afterDelta(String category, BaseWordsFilter<?> filter) {
+        republish();
+
+        if (filter.getDeltaSize() >= COMPACT_THRESHOLD && compacting.add(category)) {
+            // 与其他重新构建相同，使用调用方指定的构建线程池
+            try {
+                buildExecutor.execute(() -> {
+                    try {
+                        compact(category);
+                    } catch (CreateWordsFilterException | RuntimeException e) {
+                        error(e);
+                    } finally {
+                        compacting.remove(category);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 线程池已关闭，增量保留到下一次合并
+                compacting.remove(category);
+                error(e);
+            }
+        }
+    }
+
+    /**
+     * 把关键字分类的增量词语合并为新的过滤器。新过滤器在调用线程上构建，期间增量修改不受影响，
+     * 构建完成后转移期间新产生的增量并替换原过滤器
+     *
+     * @param category 关键字分类
+     * @return 合并后的过滤器，分类不存在时返回null
+     * @throws CreateWordsFilterException
+     */
+    public WordsFilter compact(String category) throws CreateWordsFilterException {
+        BaseWordsFilter<?> filter = deltaFilter(category);
+        if (filter == null || filter.getDeltaSize() == 0) {
+            return filter;
+        }
+
+        // 过滤器中的词语已经折叠过，直接构建
+        WordsDelta before = filter.getDelta();
+        WordsFilter compacted = buildFilter(this.type, filter.getEffectiveCategory(before), options);
+
+        // COMBINED 模式下合并自动机同样在锁外编译，期间其他分类的过滤器变化时在锁内重新编译
+        Snapshot expected = current.get();
+        CombinedAhoCorasick automaton = null;
+        if (scanMode == ScanMode.COMBINED) {
+            Map<String, WordsFilter> filters = Maps.newTreeMap(expected.filterMap);
+            filters.put(compacted.getName(), compacted);
+            automaton = Snapshot.compile(filters.values().toArray(new WordsFilter[0]));
+        }
+
+        synchronized (this) {
+            if (getFilter(category) != filter) {
+                // 合并期间分类被更新或删除
+                return getFilter(category);
+            }
+
+            filter.carryDelta(before, (BaseWordsFilter<?>) compacted);
+            Snapshot snapshot = current.get();
+            Map<String, WordsFilter> filters = Maps.newTreeMap(snapshot.filterMap);
+            filters.put(compacted.getName(), compacted);
+            publish(filters, snapshot.categories, Arrays.equals(snapshot.filters, expected.filters) ? automaton : null);
+        }
+        return compacted;
+    }
+
+    /**
+     * 把全部过滤器保存为快照，每个过滤器一个文件，并删除目录中多余的快照文件。
+     * 快照保存的是字符折叠后的词语，恢复时需要使用相同的字符折叠表
+     *
+     * @param directory 快照目录，不存在时创建
+     * @throws IOException
+     * @throws UnsupportedOperationException 过滤器类型不支持快照
+     */
+    public void saveSnapshot(Path directory) throws IOException {
+        // 快照不保存增量词语，先合并
+        for (String category : getCategoryNames()) {
+            try {
+                compact(category);
+            } catch (CreateWordsFilterException e) {
+                throw new IOException(String.format("合并增量词语失败：%s", category), e);
+            }
+        }
+
+        WordsFilter[] filters = current.get().filters;
+        for (WordsFilter filter : filters) {
+            if (!(filter instanceof BaseWordsFilter) || !((BaseWordsFilter<?>) filter).isSnapshotSupported()) {
+                throw new UnsupportedOperationException(String.format("过滤器类型不支持快照：%s", type));
+            }
+        }
+
+        Files.createDirectories(directory);
+        Set<Path> files = new HashSet<>();
+        for (int i = 0; i < filters.length; i++) {
+            Path file = directory.resolve(String.format("%04d%s", i, SNAPSHOT_SUFFIX));
+            ((BaseWordsFilter<?>) filters[i]).save(file);
+            files.add(file);
+        }
+
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (Path file : stream.collect(Collectors.toList())) {
+                if (file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX) && !files.contains(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除关键字分类对应的过滤器
+     *
+     * @param category
+     * @return 被移除的过滤器
+     */
+    @Override
+    public synchronized WordsFilter remove(String category) {
+        Snapshot snapshot = current.get();
+        WordsFilter wordsFilter = snapshot.getFilter(category);
+
+        Map<String, WordsFilter> filters = Maps.newTreeMap(snapshot.filterMap);
+        Map<String, WordsCategory> categories = Maps.newTreeMap(snapshot.categories);
+        if (wordsFilter != null) {
+            filters.remove(wordsFilter.getName());
+        }
+        categories.remove(category);
+        publish(filters, categories);
 
         return wordsFilter;
     }
@@ -115,8 +800,16 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
     @Override
     public boolean contains(boolean partMatch, String content, FilterInterceptor<Boolean> interceptor) {
         checkContent(content);
+        content = fold(content);
+        if (scanMode == ScanMode.COMBINED) {
+            return combinedContains(partMatch, content, interceptor);
+        }
+        if (scanMode == ScanMode.PARALLEL) {
+            return parallelContains(partMatch, content, interceptor);
+        }
+
         boolean finalResult = false;
-        for (WordsFilter filter : this.wordsFilters.values()) {
+        for (WordsFilter filter : current.get().filters) {
             boolean filterResult = filter.contains(partMatch, content);
             finalResult = finalResult || filterResult;
             if (interceptor != null && !interceptor.perFilter(filter.getName(), filter.getWordsCategory().getCategory(), filterResult)) {
@@ -126,6 +819,226 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
         return finalResult;
     }
 
+    /**
+     * 逐个回调匹配到的敏感词位置，分类编号为过滤器在 {@link #getFilters()} 中的顺序，
+     * 词语编号通过对应过滤器的 {@link WordsFilter#getWord(int)} 取得词语
+     *
+     * @param partMatch 是否部分匹配
+     * @param content   被匹配的语句
+     * @param listener  命中回调
+     * @return 是否被回调中止
+     */
+    @Override
+    public boolean scan(boolean partMatch, String content, HitListener listener) {
+        checkContent(content);
+        return scan(snapshot(), partMatch, fold(content), listener);
+    }
+
+    /**
+     * 当前的过滤器快照，分类编号即过滤器在快照中的顺序；一次请求只读取一次
+     */
+    private Snapshot snapshot() {
+        return current.get();
+    }
+
+    private boolean scan(Snapshot snapshot, boolean partMatch, String content, HitListener listener) {
+        WordsFilter[] filters = snapshot.filters;
+        if (scanMode == ScanMode.PARALLEL) {
+            // 各过滤器并行收集命中结果，再按过滤器顺序回调
+            AtomicBoolean stop = new AtomicBoolean();
+            List<Future<HitBuffer>> futures = Lists.newArrayListWithCapacity(filters.length);
+            for (WordsFilter filter : filters) {
+                futures.add(executor.submit(() -> collect(filter, partMatch, content, stop)));
+            }
+
+            try {
+                for (int k = 0; k < filters.length; k++) {
+                    HitBuffer buffer = await(futures.get(k));
+                    for (int i = 0; i < buffer.size(); i++) {
+                        if (listener.onHit(buffer.getStart(i), buffer.getEnd(i), buffer.getWordId(i), k)) {
+                            return true;
+                        }
+                    }
+                }
+            } finally {
+                stop.set(true);
+                cancel(futures, 0);
+            }
+            return false;
+        }
+
+        return scanInline(snapshot, partMatch, content, listener);
+    }
+
+    /**
+     * 在调用线程上扫描，COMBINED 模式扫描合并自动机，其余模式依次执行各过滤器
+     */
+    private boolean scanInline(Snapshot snapshot, boolean partMatch, String content, HitListener listener) {
+        WordsFilter[] filters = snapshot.filters;
+        if (scanMode == ScanMode.COMBINED) {
+            return scanCombined(snapshot, partMatch, content,
+                    (category, start, end) -> listener.onHit(start, end, filters[category].getWordId(content, start, end), category));
+        }
+
+        for (int k = 0; k < filters.length; k++) {
+            int category = k;
+            if (filters[k].scan(partMatch, content, (start, end, wordId, ignored) -> listener.onHit(start, end, wordId, category))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 扫描合并自动机。存在未合并增量词语的分类丢弃合并自动机的命中，改为由分类自己的过滤器匹配，
+     * 增量词语变更时不需要重新编译合并自动机，后台合并后该分类重新使用合并自动机
+     */
+    private static boolean scanCombined(Snapshot snapshot, boolean partMatch, String content, CombinedAhoCorasick.Callback callback) {
+        long pending = snapshot.pending();
+        if (pending == 0) {
+            return snapshot.automaton.scan(partMatch, content, callback);
+        }
+
+        if (snapshot.automaton.scan(partMatch, content, (category, start, end) -> (pending & (1L << category)) == 0 && callback.call(category, start, end))) {
+            return true;
+        }
+        for (int k = 0; k < snapshot.filters.length; k++) {
+            int category = k;
+            if ((pending & (1L << k)) != 0 && snapshot.filters[k].scan(partMatch, content, (start, end, wordId, ignored) -> callback.call(category, start, end))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 批量判断是否包含敏感字符，空内容视为不包含
+     *
+     * @param partMatch 是否支持匹配词语的一部分
+     * @param contents  被匹配内容列表
+     * @param parallel  是否把列表分段后在多个线程上执行
+     * @return 第 i 位表示第 i 条内容是否包含敏感字符
+     */
+    @Override
+    public BitSet containsAll(boolean partMatch, List<? extends CharSequence> contents, boolean parallel) {
+        Snapshot snapshot = snapshot();
+        BitSet result = new BitSet(contents.size());
+
+        List<BitSet> parts = batch(contents.size(), parallel, (from, to) -> {
+            BitSet part = new BitSet(to - from);
+            for (int i = from; i < to; i++) {
+                CharSequence content = contents.get(i);
+                if (content != null && content.length() > 0 && containsInline(snapshot, partMatch, fold(content))) {
+                    part.set(i - from);
+                }
+            }
+            return part;
+        });
+
+        int from = 0;
+        for (BitSet part : parts) {
+            for (int i = part.nextSetBit(0); i >= 0; i = part.nextSetBit(i + 1)) {
+                result.set(from + i);
+            }
+            from += batchSize(contents.size(), parts.size());
+        }
+        return result;
+    }
+
+    private boolean containsInline(Snapshot snapshot, boolean partMatch, String content) {
+        if (scanMode == ScanMode.COMBINED) {
+            return scanCombined(snapshot, partMatch, content, (category, start, end) -> true);
+        }
+        for (WordsFilter filter : snapshot.filters) {
+            if (filter.contains(partMatch, content)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 批量返回匹配到的敏感词位置，空内容视为没有命中
+     *
+     * @param partMatch 是否部分匹配
+     * @param contents  被匹配内容列表
+     * @param parallel  是否把列表分段后在多个线程上执行
+     * @return 每条内容的命中位置，分类编号为过滤器在 {@link #getFilters()} 中的顺序
+     */
+    @Override
+    public BatchHits matchAll(boolean partMatch, List<? extends CharSequence> contents, boolean parallel) {
+        Snapshot snapshot = snapshot();
+
+        // 每个分段使用一个命中缓冲区，分段内的所有内容共用
+        List<BatchHits> parts = batch(contents.size(), parallel, (from, to) -> {
+            HitBuffer part = new HitBuffer();
+            int[] bounds = new int[to - from + 1];
+            for (int i = from; i < to; i++) {
+                CharSequence content = contents.get(i);
+                if (content != null && content.length() > 0) {
+                    scanInline(snapshot, partMatch, fold(content), part);
+                }
+                bounds[i - from + 1] = part.size();
+            }
+            return new BatchHits(part, bounds, snapshot.version);
+        });
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        HitBuffer hits = new HitBuffer();
+        int[] bounds = new int[contents.size() + 1];
+        int message = 0;
+        for (BatchHits part : parts) {
+            HitBuffer partHits = part.getHits();
+            for (int m = 0; m < part.size(); m++) {
+                for (int i = part.from(m); i < part.to(m); i++) {
+                    hits.onHit(partHits.getStart(i), partHits.getEnd(i), partHits.getWordId(i), partHits.getCategory(i));
+                }
+                bounds[++message] = hits.size();
+            }
+        }
+        return new BatchHits(hits, bounds, snapshot.version);
+    }
+
+    private static int batchSize(int size, int parts) {
+        return (size + parts - 1) / Math.max(parts, 1);
+    }
+
+    /**
+     * 把 [0, size) 分为若干段执行，结果按分段顺序返回；不并行时只有一个分段
+     */
+    private <T> List<T> batch(int size, boolean parallel, BatchTask<T> task) {
+        int parts = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), size) : 1;
+        if (parts <= 1) {
+            return Collections.singletonList(task.run(0, size));
+        }
+
+        int length = batchSize(size, parts);
+        ExecutorService pool = (executor != null) ? executor : ForkJoinPool.commonPool();
+        List<Future<T>> futures = Lists.newArrayListWithCapacity(parts);
+        try {
+            for (int from = 0; from < size; from += length) {
+                int start = from;
+                int end = Math.min(from + length, size);
+                futures.add(pool.submit(() -> task.run(start, end)));
+            }
+
+            List<T> results = Lists.newArrayListWithCapacity(futures.size());
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            cancel(futures, 0);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchTask<T> {
+        T run(int from, int to);
+    }
+
     /**
      * 是否包含敏感字符
      *
@@ -149,8 +1062,16 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
     @Override
     public Set<String> match(boolean partMatch, String content, FilterInterceptor<Set<String>> interceptor) {
         checkContent(content);
+        content = fold(content);
+        if (scanMode == ScanMode.COMBINED) {
+            return combinedMatch(partMatch, content, interceptor);
+        }
+        if (scanMode == ScanMode.PARALLEL) {
+            return parallelMatch(partMatch, content, interceptor);
+        }
+
         HashSet<String> finalResult = Sets.newHashSet();
-        for (WordsFilter filter : this.wordsFilters.values()) {
+        for (WordsFilter filter : current.get().filters) {
             Set<String> filterResult = filter.match(partMatch, content);
             finalResult.addAll(filterResult);
             if (interceptor != null && !interceptor.perFilter(filter.getName(), filter.getWordsCategory().getCategory(), filterResult)) {
@@ -183,14 +1104,7 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
     @Override
     public String highlight(boolean partMatch, String content, FilterInterceptor<String> interceptor) {
         checkContent(content);
-        String finalResult = content;
-        for (WordsFilter filter : this.wordsFilters.values()) {
-            finalResult = filter.highlight(partMatch, finalResult);
-            if (interceptor != null && !interceptor.perFilter(filter.getName(), filter.getWordsCategory().getCategory(), finalResult)) {
-                break;
-            }
-        }
-        return finalResult;
+        return rewrite(partMatch, content, null, interceptor);
     }
 
     /**
@@ -220,16 +1134,301 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
     @Override
     public String filter(boolean partMatch, String content, Character replaceChar, FilterInterceptor<String> interceptor) {
         checkContent(content);
+        return rewrite(partMatch, content, replaceChar, interceptor);
+    }
+
+    private boolean combinedContains(boolean partMatch, String content, FilterInterceptor<Boolean> interceptor) {
+        Snapshot state = current.get();
+        if (interceptor == null) {
+            return scanCombined(state, partMatch, content, (category, start, end) -> true);
+        }
+
+        // 每个分类都需要结果，所有分类都命中后才提前结束扫描
+        int count = state.filters.length;
+        long all = (count == Long.SIZE) ? -1L : (1L << count) - 1;
+        long[] hits = new long[1];
+        scanCombined(state, partMatch, content, (category, start, end) -> {
+            hits[0] |= 1L << category;
+            return hits[0] == all;
+        });
+
+        boolean finalResult = false;
+        for (int k = 0; k < count; k++) {
+            boolean filterResult = (hits[0] & (1L << k)) != 0;
+            finalResult = finalResult || filterResult;
+            WordsFilter filter = state.filters[k];
+            if (!interceptor.perFilter(filter.getName(), filter.getWordsCategory().getCategory(), filterResult)) {
+                break;
+            }
+        }
+        return finalResult;
+    }
+
+    private List<Set<String>> combinedScan(Snapshot state, boolean partMatch, String content) {
+        List<Set<String>> results = Lists.newArrayListWithCapacity(state.filters.length);
+        for (int k = 0; k < state.filters.length; k++) {
+            results.add(Sets.newHashSet());
+        }
+
+        scanCombined(state, partMatch, content, (category, start, end) -> {
+            results.get(category).add(content.substring(start, end));
+            return false;
+        });
+        return results;
+    }
+
+    private Set<String> combinedMatch(boolean partMatch, String content, FilterInterceptor<Set<String>> interceptor) {
+        Snapshot state = current.get();
+        WordsFilter[] filters = state.filters;
+        List<Set<String>> results = combinedScan(state, partMatch, content);
+
+        HashSet<String> finalResult = Sets.newHashSet();
+        for (int k = 0; k < results.size(); k++) {
+            finalResult.addAll(results.get(k));
+            if (interceptor != null && !interceptor.perFilter(filters[k].getName(), filters[k].getWordsCategory().getCategory(), results.get(k))) {
+                break;
+            }
+        }
+        return finalResult;
+    }
+
+    /**
+     * 所有过滤器同时提交到线程池，结果按过滤器顺序交给拦截器；拦截器中止时取消剩余任务。
+     * 没有拦截器时，任意过滤器命中即取消剩余任务并返回
+     */
+    private boolean parallelContains(boolean partMatch, String content, FilterInterceptor<Boolean> interceptor) {
+        WordsFilter[] filters = current.get().filters;
+        AtomicBoolean stop = new AtomicBoolean();
+        if (interceptor == null) {
+            CompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+            List<Future<Boolean>> futures = Lists.newArrayListWithCapacity(filters.length);
+            try {
+                for (WordsFilter filter : filters) {
+                    futures.add(completion.submit(() -> contains(filter, partMatch, content, stop)));
+                }
+                for (int i = 0; i < filters.length; i++) {
+                    if (await(completion.take())) {
+                        return true;
+                    }
+                }
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待过滤结果时线程被中断", e);
+            } finally {
+                stop.set(true);
+                cancel(futures, 0);
+            }
+        }
+
+        List<Future<Boolean>> futures = Lists.newArrayListWithCapacity(filters.length);
+        for (WordsFilter filter : filters) {
+            futures.add(executor.submit(() -> contains(filter, partMatch, content, stop)));
+        }
+
+        boolean finalResult = false;
+        try {
+            for (int k = 0; k < filters.length; k++) {
+                boolean filterResult = await(futures.get(k));
+                finalResult = finalResult || filterResult;
+                if (!interceptor.perFilter(filters[k].getName(), filters[k].getWordsCategory().getCategory(), filterResult)) {
+                    break;
+                }
+            }
+        } finally {
+            stop.set(true);
+            cancel(futures, 0);
+        }
+        return finalResult;
+    }
+
+    private Set<String> parallelMatch(boolean partMatch, String content, FilterInterceptor<Set<String>> interceptor) {
+        WordsFilter[] filters = current.get().filters;
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Future<Set<String>>> futures = Lists.newArrayListWithCapacity(filters.length);
+        for (WordsFilter filter : filters) {
+            futures.add(executor.submit(() -> match(filter, partMatch, content, options.isSkipNoise(), stop)));
+        }
+
+        HashSet<String> finalResult = Sets.newHashSet();
+        try {
+            for (int k = 0; k < filters.length; k++) {
+                Set<String> filterResult = await(futures.get(k));
+                finalResult.addAll(filterResult);
+                if (interceptor != null && !interceptor.perFilter(filters[k].getName(), filters[k].getWordsCategory().getCategory(), filterResult)) {
+                    break;
+                }
+            }
+        } finally {
+            stop.set(true);
+            cancel(futures, 0);
+        }
+        return finalResult;
+    }
+
+    /**
+     * PARALLEL 模式下单个过滤器的判断任务，第一次命中即结束；其余同 {@link #collect}
+     */
+    static boolean contains(WordsFilter filter, boolean partMatch, String content, AtomicBoolean stop) {
+        if (stop.get()) {
+            return false;
+        }
+        AtomicBoolean found = new AtomicBoolean();
+        filter.scan(partMatch, content, (start, end, wordId, category) -> {
+            if (!stop.get()) {
+                found.set(true);
+            }
+            return true;
+        });
+        return found.get();
+    }
+
+    /**
+     * PARALLEL 模式下单个过滤器的扫描任务。{@link Future#cancel(boolean)} 不能中断正在执行的扫描，
+     * 调用方不再需要结果时设置 stop：尚未开始的任务不再扫描，正在执行的扫描在下一次命中时结束
+     */
+    static HitBuffer collect(WordsFilter filter, boolean partMatch, String content, AtomicBoolean stop) {
+        HitBuffer buffer = new HitBuffer();
+        if (stop.get()) {
+            return buffer;
+        }
+        filter.scan(partMatch, content, (start, end, wordId, category) -> stop.get() || buffer.onHit(start, end, wordId, category));
+        return buffer;
+    }
+
+    /**
+     * 跳过干扰字符时命中区间包括干扰字符，按词语编号取得词语
+     */
+    private static Set<String> match(WordsFilter filter, boolean partMatch, String content, boolean skipNoise, AtomicBoolean stop) {
+        Set<String> words = Sets.newHashSet();
+        if (stop.get()) {
+            return words;
+        }
+        filter.scan(partMatch, content, (start, end, wordId, category) -> {
+            if (stop.get()) {
+                return true;
+            }
+            words.add((skipNoise && wordId >= 0) ? filter.getWord(wordId) : content.substring(start, end));
+            return false;
+        });
+        return words;
+    }
+
+    private static void cancel(List<? extends Future<?>> futures, int from) {
+        for (int i = from; i < futures.size(); i++) {
+            futures.get(i).cancel(true);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待过滤结果时线程被中断", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("过滤任务已被取消", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("过滤任务执行失败", e.getCause());
+        }
+    }
+
+    /**
+     * 一次得到全部分类的命中位置，再按命中位置一次性改写内容，所有分类共用一个输出。
+     * 有拦截器时，第 k 次回调的结果为前 k 个分类的命中位置改写后的内容
+     */
+    private String rewrite(boolean partMatch, String content, Character replaceChar, FilterInterceptor<String> interceptor) {
+        Snapshot snapshot = snapshot();
+        HitBuffer hits = new HitBuffer();
+        // 在折叠后的内容上匹配，折叠前后位置一一对应，命中位置直接用于改写原内容
+        scan(snapshot, partMatch, fold(content), hits);
+
+        if (interceptor == null) {
+            return (replaceChar == null) ? HitRewriter.highlight(content, hits) : HitRewriter.filter(content, hits, replaceChar);
+        }
+
         String finalResult = content;
-        for (WordsFilter filter : this.wordsFilters.values()) {
-            finalResult = filter.filter(partMatch, finalResult, replaceChar);
-            if (interceptor != null && !interceptor.perFilter(filter.getName(), filter.getWordsCategory().getCategory(), finalResult)) {
+        WordsFilter[] filters = snapshot.filters;
+        for (int k = 0; k < filters.length; k++) {
+            finalResult = (replaceChar == null) ? HitRewriter.highlight(content, hits, k) : HitRewriter.filter(content, hits, k, replaceChar);
+            if (!interceptor.perFilter(filters[k].getName(), filters[k].getWordsCategory().getCategory(), finalResult)) {
                 break;
             }
         }
         return finalResult;
     }
 
+    /**
+     * 不可变的上下文快照：版本号、按名称排序的过滤器、关键字分类及分类索引，COMBINED 模式下还包括合并自动机。
+     * 分类编号即过滤器在 filters 中的顺序
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final ImmutableSortedMap<String, WordsFilter> filterMap;
+        private final ImmutableSortedMap<String, WordsCategory> categories;
+        private final WordsFilter[] filters;
+        // 关键字分类 -> 分类编号
+        private final Map<String, Integer> index;
+        private final CombinedAhoCorasick automaton;
+
+        private Snapshot(long version, ScanMode scanMode, Map<String, WordsFilter> filterMap, Map<String, WordsCategory> categories,
+                         Snapshot previous, CombinedAhoCorasick compiled) {
+            this.version = version;
+            this.filterMap = ImmutableSortedMap.copyOf(filterMap);
+            this.categories = ImmutableSortedMap.copyOf(categories);
+            this.filters = this.filterMap.values().toArray(new WordsFilter[0]);
+
+            ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+            for (int k = 0; k < filters.length; k++) {
+                builder.put(filters[k].getWordsCategory().getCategory(), k);
+            }
+            this.index = builder.build();
+
+            if (scanMode != ScanMode.COMBINED) {
+                this.automaton = null;
+            } else if (compiled != null) {
+                this.automaton = compiled;
+            } else if (previous != null && previous.automaton != null && Arrays.equals(previous.filters, filters)) {
+                // 过滤器没有变化（只有增量词语变更），继续使用原来的合并自动机
+                this.automaton = previous.automaton;
+            } else {
+                this.automaton = compile(filters);
+            }
+        }
+
+        /**
+         * 使用各过滤器已编译的词语构建合并自动机，增量词语不编译，由分类自己的过滤器匹配直到合并
+         */
+        private static CombinedAhoCorasick compile(WordsFilter[] filters) {
+            List<WordsCategory> wordsCategories = Lists.newArrayListWithCapacity(filters.length);
+            for (WordsFilter filter : filters) {
+                wordsCategories.add(filter.getWordsCategory());
+            }
+            return new CombinedAhoCorasick(wordsCategories);
+        }
+
+        /**
+         * 存在未合并增量词语的分类，每次请求读取一次
+         */
+        private long pending() {
+            long pending = 0;
+            for (int k = 0; k < filters.length; k++) {
+                if (filters[k] instanceof BaseWordsFilter && ((BaseWordsFilter<?>) filters[k]).getDeltaSize() > 0) {
+                    pending |= 1L << k;
+                }
+            }
+            return pending;
+        }
+
+        private WordsFilter getFilter(String category) {
+            Integer k = index.get(category);
+            return (k == null) ? null : filters[k];
+        }
+    }
+
     public final static class DefaultWordsFilterContextStates {
         private static final Map<FilterType, DefaultWordsFilterContext> CONTEXT_CACHE = new ConcurrentSkipListMap<>();
 
@@ -258,7 +1457,27 @@ public final class DefaultWordsFilterContext extends ApplicationLogging implemen
          * @throws CreateWordsFilterException
          */
         public static DefaultWordsFilterContext reloadContext(FilterType type, Collection<WordsCategory> rawWordSets) throws CreateWordsFilterException {
-            DefaultWordsFilterContext context = build(type, rawWordSets);
+            return reloadContext(type, rawWordSets, ScanMode.PER_FILTER);
+        }
+
+        /**
+         * 使用给定的关键字集和扫描方式，重新加载指定类型的过滤器上下文。原有的过滤器将被丢弃。
+         * 已有相同扫描方式的上下文时，在原上下文上构建新过滤器后一次替换，已取得上下文的调用方不受影响
+         *
+         * @param type
+         * @param rawWordSets
+         * @param scanMode
+         * @return 过滤器上下文
+         * @throws CreateWordsFilterException
+         */
+        public static DefaultWordsFilterContext reloadContext(FilterType type, Collection<WordsCategory> rawWordSets, ScanMode scanMode) throws CreateWordsFilterException {
+            DefaultWordsFilterContext context = CONTEXT_CACHE.get(type);
+            if (context != null && context.getScanMode() == scanMode) {
+                context.reload(rawWordSets);
+                return context;
+            }
+
+            context = build(type, rawWordSets, scanMode);
             CONTEXT_CACHE.put(type, context);
             return context;
         }
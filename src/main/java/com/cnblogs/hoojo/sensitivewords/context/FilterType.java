@@ -1,9 +1,13 @@
 package com.cnblogs.hoojo.sensitivewords.context;
 
 import com.cnblogs.hoojo.sensitivewords.filter.WordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.ac.AhoCorasickFilter;
 import com.cnblogs.hoojo.sensitivewords.filter.bucket.HashBucketFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.daac.DaacFilter;
 import com.cnblogs.hoojo.sensitivewords.filter.dat.DatFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.dawg.DawgFilter;
 import com.cnblogs.hoojo.sensitivewords.filter.dfa.DfaFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.shiftor.ShiftOrFilter;
 import com.cnblogs.hoojo.sensitivewords.filter.simhash.SimHashFilter;
 import com.cnblogs.hoojo.sensitivewords.filter.tire.TireTreeFilter;
 import com.cnblogs.hoojo.sensitivewords.filter.ttmp.TtmpFilter;
@@ -19,7 +23,11 @@ public enum FilterType {
     HASH_BUCKET("二级HASH(HASH BUCKET)脱敏算法实现", HashBucketFilter.class),
     DAT("DAT双数组算法脱敏实现", DatFilter.class),
     TTMP("TTMP算法脱敏支持类", TtmpFilter.class),
-    SIMHASH("SIMHASH算法脱敏实现", SimHashFilter.class);
+    SIMHASH("SIMHASH算法脱敏实现", SimHashFilter.class),
+    AHO_CORASICK("AHO-CORASICK多模式匹配算法脱敏实现", AhoCorasickFilter.class),
+    DAAC("双数组AHO-CORASICK算法脱敏实现", DaacFilter.class),
+    SHIFT_OR("SHIFT-OR位并行算法脱敏实现，适用于短词小词库", ShiftOrFilter.class),
+    DAWG("DAWG最小化词图算法脱敏实现，共享词尾，适用于大词库", DawgFilter.class);
 
     private final String desc;
     private final Class<? extends WordsFilter> clazz;
@@ -37,6 +45,20 @@ public enum FilterType {
         return clazz;
     }
 
+    /**
+     * 按实现类名查找算法类型
+     *
+     * @return 算法类型，不存在时返回null
+     */
+    public static FilterType of(String className) {
+        for (FilterType type : values()) {
+            if (type.clazz.getName().equals(className)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
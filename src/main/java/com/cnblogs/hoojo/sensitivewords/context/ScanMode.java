@@ -0,0 +1,24 @@
+package com.cnblogs.hoojo.sensitivewords.context;
+
+/**
+ * 过滤器上下文的扫描方式
+ */
+public enum ScanMode {
+
+    /**
+     * 依次使用每个关键字分类的过滤器扫描被匹配内容
+     */
+    PER_FILTER,
+
+    /**
+     * 所有关键字分类编译为一个合并的 Aho-Corasick 自动机，被匹配内容只扫描一遍；
+     * 每个分类的拦截器仍按过滤器顺序回调。部分匹配的结果与 {@link FilterType#AHO_CORASICK} 一致
+     */
+    COMBINED,
+
+    /**
+     * 每个关键字分类的过滤器同时提交到线程池执行，拦截器仍按过滤器顺序回调；
+     * 拦截器中止或 contains 命中后取消剩余任务
+     */
+    PARALLEL
+}
@@ -0,0 +1,231 @@
+package com.cnblogs.hoojo.sensitivewords.context;
+
+import com.cnblogs.hoojo.sensitivewords.common.ApplicationLogging;
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.exception.CreateWordsFilterException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 关键字分类目录加载器
+ * <p>
+ * 目录中每个 {@link #SUFFIX} 文件是一个关键字分类，分类名为文件名，每行一个词语（UTF-8）。
+ * 启动时加载全部文件，之后使用 {@link WatchService} 监听目录，文件变化在安静 debounce 毫秒后合并处理：
+ * 只重新读取变化的文件，在后台线程上构建对应分类的过滤器，通过 {@link DefaultWordsFilterContext#update(Collection, Collection)}
+ * 一次发布；文件被删除或为空时删除分类。构建失败时保留原有的过滤器。
+ * <p>
+ * 文件内容替换分类原有的词语，此前通过 addWords、removeWords 增量修改的词语不保留；构建期间的增量修改转移到新过滤器上。
+ * 目录读取等异常不会结束监听线程，未处理的变化在等待一段时间后重试。
+ */
+public final class WordsDirectoryLoader extends ApplicationLogging implements Closeable {
+
+    public static final String SUFFIX = ".txt";
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    // 监听异常后重试的等待时间，连续失败时加倍
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final DefaultWordsFilterContext context;
+    private final Path directory;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    private WordsDirectoryLoader(DefaultWordsFilterContext context, Path directory, long debounceMillis) throws IOException {
+        this.context = context;
+        this.directory = directory;
+        this.debounceMillis = debounceMillis;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        this.thread = new Thread(this::run, "words-loader-" + directory.getFileName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 加载目录中的全部关键字分类，并开始监听目录
+     *
+     * @param context   加载到的过滤器上下文，目录以外的分类被替换
+     * @param directory 关键字分类目录
+     * @return 加载器，不再需要时关闭
+     * @throws IOException                目录读取失败
+     * @throws CreateWordsFilterException 初始加载失败
+     */
+    public static WordsDirectoryLoader start(DefaultWordsFilterContext context, Path directory) throws IOException, CreateWordsFilterException {
+        return start(context, directory, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * @param debounceMillis 最后一次文件变化后等待的毫秒数，期间的变化合并为一次更新
+     */
+    public static WordsDirectoryLoader start(DefaultWordsFilterContext context, Path directory, long debounceMillis) throws IOException, CreateWordsFilterException {
+        WordsDirectoryLoader loader = new WordsDirectoryLoader(context, directory, debounceMillis);
+        try {
+            // 先注册监听再加载，加载期间的变化不会丢失
+            List<WordsCategory> categories = Lists.newArrayList();
+            for (Path file : loader.listFiles()) {
+                WordsCategory category = readCategory(file);
+                if (category != null) {
+                    categories.add(category);
+                }
+            }
+            context.reload(categories);
+        } catch (IOException | CreateWordsFilterException | RuntimeException e) {
+            loader.close();
+            throw e;
+        }
+
+        loader.thread.start();
+        return loader;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(WordsDirectoryLoader::isWordsFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isWordsFile(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    private static String categoryOf(Path file) {
+        return file.getFileName().toString();
+    }
+
+    /**
+     * 读取关键字分类文件
+     *
+     * @return 关键字分类，文件不存在或没有词语时返回null
+     */
+    private static WordsCategory readCategory(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        List<String> words = Lists.newArrayList();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (StringUtils.isNotBlank(line)) {
+                words.add(line);
+            }
+        }
+        return words.isEmpty() ? null : new WordsCategory(categoryOf(file), words);
+    }
+
+    private void run() {
+        Set<Path> changed = Sets.newHashSet();
+        boolean rescan = false;
+        long backoff = 0;
+        while (!closed) {
+            try {
+                WatchKey key = (changed.isEmpty() && !rescan) ? watchService.take() : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    // 安静期结束，处理累计的变化；上次处理失败时等待后再重试
+                    if (backoff > 0) {
+                        TimeUnit.MILLISECONDS.sleep(backoff);
+                    }
+                    apply(rescan ? Sets.newHashSet(listFiles()) : changed, rescan);
+                    changed.clear();
+                    rescan = false;
+                    backoff = 0;
+                    continue;
+                }
+
+                // 收到新的变化，重新计算安静期，不再等待上次失败的退避时间
+                backoff = 0;
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan = true;
+                        continue;
+                    }
+
+                    Path file = directory.resolve((Path) event.context());
+                    if (isWordsFile(file)) {
+                        changed.add(file);
+                    }
+                }
+                key.reset();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // 加载器已关闭
+                return;
+            } catch (IOException | RuntimeException e) {
+                // 未处理的变化保留到下次重试，连续失败时逐步延长等待时间，监听线程不退出
+                backoff = Math.min(Math.max(backoff * 2, MIN_BACKOFF_MILLIS), MAX_BACKOFF_MILLIS);
+                error("关键字分类目录监听异常，{}ms后重试：{}", backoff, directory, e);
+            }
+        }
+    }
+
+    /**
+     * 重新读取变化的文件并更新对应的分类
+     *
+     * @param all 是否是全部文件，此时目录中不存在的分类也被删除
+     */
+    private void apply(Set<Path> files, boolean all) {
+        List<WordsCategory> updated = Lists.newArrayList();
+        Set<String> removed = Sets.newHashSet();
+        for (Path file : files) {
+            try {
+                WordsCategory category = readCategory(file);
+                if (category == null) {
+                    removed.add(categoryOf(file));
+                } else {
+                    updated.add(category);
+                }
+            } catch (IOException e) {
+                // 读取失败时保留原有的过滤器，文件写完后会再次触发
+                error("读取关键字分类文件失败：{}", file, e);
+            }
+        }
+        if (all) {
+            Set<String> present = files.stream().map(WordsDirectoryLoader::categoryOf).collect(Collectors.toSet());
+            for (String category : context.getCategoryNames()) {
+                if (!present.contains(category)) {
+                    removed.add(category);
+                }
+            }
+        }
+
+        if (updated.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        try {
+            long version = context.update(updated, removed);
+            info("关键字分类目录已更新：{}, 更新{}个, 删除{}个, version={}", directory, updated.size(), removed.size(), version);
+        } catch (CreateWordsFilterException | RuntimeException e) {
+            error("更新关键字分类失败：{}", directory, e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -2,9 +2,13 @@ package com.cnblogs.hoojo.sensitivewords.context;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.exception.CreateWordsFilterException;
+import com.cnblogs.hoojo.sensitivewords.filter.BatchHits;
+import com.cnblogs.hoojo.sensitivewords.filter.HitListener;
 import com.cnblogs.hoojo.sensitivewords.filter.WordsFilter;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public interface WordsFilterContext {
@@ -16,6 +20,20 @@ public interface WordsFilterContext {
      */
     FilterType getType();
 
+    /**
+     * 获取扫描方式
+     *
+     * @return
+     */
+    ScanMode getScanMode();
+
+    /**
+     * 当前快照的版本号，每次变更过滤器后递增
+     *
+     * @return
+     */
+    long getVersion();
+
     /**
      * 获取关键字分类
      *
@@ -23,6 +41,13 @@ public interface WordsFilterContext {
      */
     Set<String> getCategoryNames();
 
+    /**
+     * 获取过滤器名称
+     *
+     * @return
+     */
+    Set<String> getFilterNames();
+
     /**
      * 获取过滤器
      *
@@ -63,6 +88,35 @@ public interface WordsFilterContext {
      */
     WordsFilter remove(String category);
 
+    /**
+     * 向关键字分类增量添加词语，立即生效，不重新构建过滤器；分类不存在时创建新的过滤器
+     *
+     * @param category 关键字分类
+     * @param words    新增的词语
+     * @return 分类对应的过滤器
+     * @throws CreateWordsFilterException
+     */
+    WordsFilter addWords(String category, Collection<String> words) throws CreateWordsFilterException;
+
+    /**
+     * 从关键字分类增量删除词语，立即生效，不重新构建过滤器
+     *
+     * @param category 关键字分类
+     * @param words    删除的词语
+     * @return 分类对应的过滤器，分类不存在时返回null
+     */
+    WordsFilter removeWords(String category, Collection<String> words);
+
+    /**
+     * 逐个回调匹配到的敏感词位置，不创建字符串
+     *
+     * @param partMatch 是否部分匹配
+     * @param content   被匹配的语句
+     * @param listener  命中回调，分类编号为过滤器在 {@link #getFilters()} 中的顺序
+     * @return 是否被回调中止
+     */
+    boolean scan(boolean partMatch, String content, HitListener listener);
+
     /**
      * 是否包含敏感字符
      *
@@ -73,6 +127,26 @@ public interface WordsFilterContext {
      */
     boolean contains(boolean partMatch, String content, FilterInterceptor<Boolean> interceptor);
 
+    /**
+     * 批量判断是否包含敏感字符，空内容视为不包含
+     *
+     * @param partMatch 是否支持匹配词语的一部分
+     * @param contents  被匹配内容列表
+     * @param parallel  是否把列表分段后在多个线程上执行
+     * @return 第 i 位表示第 i 条内容是否包含敏感字符
+     */
+    BitSet containsAll(boolean partMatch, List<? extends CharSequence> contents, boolean parallel);
+
+    /**
+     * 批量返回匹配到的敏感词位置，空内容视为没有命中
+     *
+     * @param partMatch 是否部分匹配
+     * @param contents  被匹配内容列表
+     * @param parallel  是否把列表分段后在多个线程上执行
+     * @return 每条内容的命中位置，分类编号为过滤器在 {@link #getFilters()} 中的顺序，并带有所用快照的版本号
+     */
+    BatchHits matchAll(boolean partMatch, List<? extends CharSequence> contents, boolean parallel);
+
     /**
      * 是否包含敏感字符
      *
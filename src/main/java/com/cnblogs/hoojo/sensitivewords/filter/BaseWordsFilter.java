@@ -2,25 +2,71 @@ package com.cnblogs.hoojo.sensitivewords.filter;
 
 import com.cnblogs.hoojo.sensitivewords.common.ApplicationLogging;
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
-import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public abstract class BaseWordsFilter<S> extends ApplicationLogging implements WordsFilter {
 
-    private static final String HTML_HIGHLIGHT = "<font color='red'>%s</font>";
+    // 有敏感词立即返回
+    private static final Callback FOUND = (start, end, wordId) -> true;
+
     private final WordsCategory wordsCategory;
     private final String name;
     private final S state;
+    private final FilterOptions options;
+    // 关键字分类中被加载的词语位置，状态不能直接查找词语时由此构建词语表
+    private final BitSet loaded = new BitSet();
+    // 按需构建的已加载词语表，见 indexOf(CharSequence, int, int)
+    private volatile WordHashTable dictionary;
+    // 已加载词语的最大长度
+    private int maxWordLength;
+    // 增量添加、删除的词语，与主状态一起匹配
+    private volatile WordsDelta delta = WordsDelta.EMPTY;
 
     public BaseWordsFilter(WordsCategory wordsCategory) {
+        this(wordsCategory, FilterOptions.NONE);
+    }
+
+    public BaseWordsFilter(WordsCategory wordsCategory, FilterOptions options) {
         this.wordsCategory = wordsCategory;
         this.name = String.format("%s|%s", this.getClass().getSimpleName(), wordsCategory.getCategory());
+        this.options = options;
         this.state = load(wordsCategory);
     }
 
+    /**
+     * 从快照恢复过滤器，不再逐个加载和编译词语
+     */
+    protected BaseWordsFilter(FilterSnapshot snapshot) {
+        if (!getClass().getName().equals(snapshot.getType())) {
+            throw new IllegalArgumentException(String.format("快照类型不一致：%s, %s", snapshot.getType(), getClass().getName()));
+        }
+
+        this.wordsCategory = new WordsCategory(snapshot.getCategory(), snapshot.getWords());
+        this.name = String.format("%s|%s", this.getClass().getSimpleName(), wordsCategory.getCategory());
+        this.options = FilterOptions.NONE;
+        List<String> words = snapshot.getWords();
+        for (int i = 0; i < words.size(); i++) {
+            loaded.set(i);
+            maxWordLength = Math.max(maxWordLength, words.get(i).length());
+        }
+        this.state = restoreState(snapshot);
+    }
+
     @Override
     public String getName() {
         return this.name;
@@ -35,11 +81,164 @@ public abstract class BaseWordsFilter<S> extends ApplicationLogging implements W
         return state;
     }
 
+    public FilterOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 已加载词语的最大长度
+     */
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    /**
+     * 一次命中在被匹配内容中的最大跨度，包括跳过的干扰字符；分段扫描时用作相邻分段的重叠长度
+     */
+    public int getMaxMatchLength() {
+        int length = Math.max(maxWordLength, delta.getMaxLength());
+        return length + Math.max(length - 1, 0) * options.getMaxGap();
+    }
+
+    /**
+     * 增量添加词语，立即生效，不重新构建过滤器。空白词语和单个字符的词语被忽略
+     *
+     * @param words 新增的词语
+     */
+    public synchronized void addWords(Collection<String> words) {
+        Set<String> added = Sets.newLinkedHashSet(delta.getAdded());
+        Set<String> removed = Sets.newLinkedHashSet(delta.getRemoved());
+        for (String s : words) {
+            String word = StringUtils.trim(s);
+            if (StringUtils.isEmpty(word) || word.length() < 2 || removed.remove(word)) {
+                continue;
+            }
+            if (!isLoaded(word)) {
+                added.add(word);
+            }
+        }
+        this.delta = newDelta(added, removed);
+    }
+
+    /**
+     * 增量删除词语，立即生效，不重新构建过滤器
+     *
+     * @param words 删除的词语
+     * @throws IllegalArgumentException 删除后分类中没有词语
+     */
+    public synchronized void removeWords(Collection<String> words) {
+        Set<String> added = Sets.newLinkedHashSet(delta.getAdded());
+        Set<String> removed = Sets.newLinkedHashSet(delta.getRemoved());
+        for (String s : words) {
+            String word = StringUtils.trim(s);
+            if (StringUtils.isEmpty(word) || added.remove(word)) {
+                continue;
+            }
+            if (isLoaded(word)) {
+                removed.add(word);
+            }
+        }
+
+        if (getWordCount() - removed.size() + added.size() <= 0) {
+            throw new IllegalArgumentException(String.format("不能删除分类中的全部词语：%s", wordsCategory.getCategory()));
+        }
+        this.delta = newDelta(added, removed);
+    }
+
+    /**
+     * 把合并期间产生的增量转移到合并后的过滤器上
+     *
+     * @param before    合并开始时的增量，合并后的过滤器由 {@link #getEffectiveCategory(WordsDelta)} 构建
+     * @param compacted 合并后的过滤器
+     */
+    public synchronized void carryDelta(WordsDelta before, BaseWordsFilter<?> compacted) {
+        WordsDelta after = this.delta;
+
+        Set<String> words = Sets.newHashSet(before.getAdded());
+        words.addAll(before.getRemoved());
+        words.addAll(after.getAdded());
+        words.addAll(after.getRemoved());
+
+        List<String> added = Lists.newArrayList();
+        List<String> removed = Lists.newArrayList();
+        for (String word : words) {
+            boolean now = contains(after, word);
+            if (now != contains(before, word)) {
+                (now ? added : removed).add(word);
+            }
+        }
+        compacted.addWords(added);
+        if (!removed.isEmpty()) {
+            compacted.removeWords(removed);
+        }
+    }
+
+    private WordsDelta newDelta(Set<String> added, Set<String> removed) {
+        int[] removedIds = new int[removed.size()];
+        int i = 0;
+        for (String word : removed) {
+            removedIds[i++] = indexOf(word, 0, word.length());
+        }
+        return new WordsDelta(added, removed, removedIds);
+    }
+
+    private boolean contains(WordsDelta delta, String word) {
+        return delta.getAdded().contains(word) || (isLoaded(word) && !delta.getRemoved().contains(word));
+    }
+
+    private boolean isLoaded(String word) {
+        return indexOf(word, 0, word.length()) >= 0;
+    }
+
+    /**
+     * 当前增量，用作 {@link #carryDelta(WordsDelta, BaseWordsFilter)} 的合并起点
+     */
+    public WordsDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * 增量添加和删除的词语数
+     */
+    public int getDeltaSize() {
+        return delta.size();
+    }
+
+    /**
+     * 包括增量词语在内的关键字分类，每次调用重新计算
+     */
+    public WordsCategory getEffectiveCategory() {
+        return getEffectiveCategory(delta);
+    }
+
+    /**
+     * 包括指定增量在内的关键字分类
+     */
+    public WordsCategory getEffectiveCategory(WordsDelta delta) {
+        if (delta.isEmpty()) {
+            return wordsCategory;
+        }
+
+        List<String> words = Lists.newArrayListWithCapacity(wordsCategory.getWords().size() + delta.getAdded().size());
+        for (String word : wordsCategory.getWords()) {
+            if (!delta.getRemoved().contains(StringUtils.trim(word))) {
+                words.add(word);
+            }
+        }
+        words.addAll(delta.getAdded());
+        return new WordsCategory(wordsCategory.getCategory(), words);
+    }
+
     protected S load(WordsCategory wordSet) {
         S state = createState();
         loadStart(wordSet, state);
+        int i = 0;
         for (String s : wordSet.getWords()) {
-            this.putOneWord(state, s);
+            if (this.putOneWord(state, s)) {
+                loaded.set(i);
+                maxWordLength = Math.max(maxWordLength, StringUtils.trim(s).length());
+            }
+            i++;
         }
         loadCompete(wordSet, state);
         return state;
@@ -47,6 +246,19 @@ public abstract class BaseWordsFilter<S> extends ApplicationLogging implements W
 
     protected abstract S createState();
 
+    /**
+     * 按过滤器选项保存编译后的数组：堆外存储时复制到直接内存，否则直接包装原数组
+     */
+    protected IntBuffer store(int[] array) {
+        if (!options.isOffHeap()) {
+            return IntBuffer.wrap(array);
+        }
+
+        IntBuffer buffer = ByteBuffer.allocateDirect(array.length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        buffer.put(array).flip();
+        return buffer;
+    }
+
     protected void loadStart(WordsCategory wordSet, S state) {
 
     }
@@ -57,39 +269,228 @@ public abstract class BaseWordsFilter<S> extends ApplicationLogging implements W
 
     protected abstract boolean putOneWord(S state, String word) throws RuntimeException;
 
+    /**
+     * 是否支持保存为快照
+     */
+    public boolean isSnapshotSupported() {
+        return false;
+    }
+
+    /**
+     * 导出编译后的状态，与 {@link #restoreState(FilterSnapshot)} 对应
+     */
+    protected IntBuffer[] saveState(S state) {
+        throw new UnsupportedOperationException(String.format("过滤器不支持快照：%s", getClass().getSimpleName()));
+    }
+
+    /**
+     * 从快照的分段恢复编译后的状态
+     */
+    protected S restoreState(FilterSnapshot snapshot) {
+        throw new UnsupportedOperationException(String.format("过滤器不支持快照：%s", getClass().getSimpleName()));
+    }
+
+    /**
+     * 把编译后的过滤器保存为快照文件，可通过过滤器的 (FilterSnapshot) 构造函数恢复
+     *
+     * @param file 快照文件
+     */
+    public void save(Path file) throws IOException {
+        if (!delta.isEmpty()) {
+            throw new IllegalStateException(String.format("过滤器存在未合并的增量词语：%s", name));
+        }
+
+        // 按加载顺序保存已加载的词语，恢复后默认词语表的编号不变
+        List<String> words = Lists.newArrayListWithCapacity(loaded.cardinality());
+        int i = 0;
+        for (String word : wordsCategory.getWords()) {
+            if (loaded.get(i++)) {
+                words.add(StringUtils.trim(word));
+            }
+        }
+        FilterSnapshot.write(file, getClass().getName(), wordsCategory.getCategory(), words, saveState(state));
+    }
+
     /**
      * 判断一段文字包含敏感词语，支持敏感词结果回调
      *
      * @param partMatch 是否支持匹配词语的一部分
      * @param content   被匹配内容
+     * @param start     匹配区间开始位置，已去除首部空白
+     * @param end       匹配区间结束位置（不含），已去除尾部空白
      * @param callback  回调接口
      * @return 是否匹配到的词语
      * @author hoojo
      * @createDate 2018年2月9日 下午2:54:59
      */
-    protected abstract boolean processor(boolean partMatch, String content, Callback callback) throws RuntimeException;
+    protected abstract boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException;
+
+    /**
+     * 在区间内匹配主状态和增量词语，丢弃已删除词语的命中
+     * <p>
+     * 部分匹配时先完整匹配，再按 DFA 的规则选择命中：每个开始位置取最短的词语，然后跳过该词语和其后的一个字符。
+     * 已删除的词语因此不会让主状态跳过其后的词语；没有命中时不跳过已查找的字符，合并前后的结果可能略有不同
+     */
+    final boolean process(boolean partMatch, String content, int start, int end, Callback callback) {
+        WordsDelta delta = this.delta;
+        if (delta.isEmpty()) {
+            return processor(partMatch, content, start, end, callback);
+        }
+
+        if (!partMatch) {
+            Callback filtered = (hitStart, hitEnd, wordId) -> !delta.isRemoved(content, hitStart, hitEnd, wordId) && callback.call(hitStart, hitEnd, wordId);
+            if (processor(false, content, start, end, filtered)) {
+                return true;
+            }
+            return delta.processor(content, start, end, callback);
+        }
 
+        HitBuffer hits = new HitBuffer();
+        Callback collect = (hitStart, hitEnd, wordId) -> !delta.isRemoved(content, hitStart, hitEnd, wordId) && hits.onHit(hitStart, hitEnd, wordId, 0);
+        processor(false, content, start, end, collect);
+        delta.processor(content, start, end, collect);
+
+        // 按开始位置排序，低位保存命中的下标
+        long[] sorted = new long[hits.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = ((long) hits.getStart(i) << 32) | i;
+        }
+        Arrays.sort(sorted);
+
+        int resume = start;
+        for (int i = 0; i < sorted.length; ) {
+            int hitStart = (int) (sorted[i] >>> 32);
+            // 同一开始位置取最短的词语
+            int shortest = (int) sorted[i];
+            for (i++; i < sorted.length && (int) (sorted[i] >>> 32) == hitStart; i++) {
+                if (hits.getEnd((int) sorted[i]) < hits.getEnd(shortest)) {
+                    shortest = (int) sorted[i];
+                }
+            }
+
+            if (hitStart < resume) {
+                continue;
+            }
+            if (callback.call(hitStart, hits.getEnd(shortest), hits.getWordId(shortest))) {
+                return true;
+            }
+            resume = hits.getEnd(shortest) + 1;
+        }
+        return false;
+    }
+
+    /**
+     * 去除首尾空白后在原内容上匹配，不复制内容，回调的位置即为原内容中的位置
+     */
+    final boolean processor(boolean partMatch, String content, Callback callback) {
+        if (StringUtils.isBlank(content)) {
+            return false;
+        }
+
+        int start = 0;
+        int end = content.length();
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && content.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return process(partMatch, content, start, end, callback);
+    }
+
+    /**
+     * 增量添加的词语编号排在已加载的词语之后
+     */
     @Override
-    public boolean contains(boolean partMatch, String content) throws RuntimeException {
+    public final int getWordId(String content, int start, int end) {
+        int wordId = indexOf(content, start, end);
+        if (wordId >= 0) {
+            return wordId;
+        }
 
-        return processor(partMatch, content, new Callback() {
-            @Override
-            public boolean call(String word) {
-                return true; // 有敏感词立即返回
+        wordId = delta.find(content, start, end);
+        return (wordId < 0) ? -1 : getWordIdLimit() + wordId;
+    }
+
+    @Override
+    public final String getWord(int wordId) {
+        int limit = getWordIdLimit();
+        if (wordId >= limit) {
+            return delta.getWord(wordId - limit);
+        }
+        return wordOf(wordId);
+    }
+
+    /**
+     * 已加载词语的编号，不是已加载的词语时返回-1。
+     * 默认在第一次调用时由关键字分类构建词语表，状态中能够直接查找词语的算法应覆盖本方法以及
+     * {@link #wordOf(int)}、{@link #getWordIdLimit()}、{@link #getWordCount()}，不再重复保存词语
+     */
+    protected int indexOf(CharSequence content, int start, int end) {
+        return dictionary().find(content, start, end, WordHashTable.hash(content, start, end));
+    }
+
+    /**
+     * 已加载词语的编号对应的词语，编号不对应词语时返回null
+     */
+    protected String wordOf(int wordId) {
+        WordHashTable dictionary = dictionary();
+        return (wordId >= 0 && wordId < dictionary.size()) ? dictionary.getWord(wordId) : null;
+    }
+
+    /**
+     * 已加载词语编号的上界（不含），增量添加的词语编号从这里开始
+     */
+    protected int getWordIdLimit() {
+        return dictionary().size();
+    }
+
+    /**
+     * 已加载的不重复词语数
+     */
+    protected int getWordCount() {
+        return dictionary().size();
+    }
+
+    private WordHashTable dictionary() {
+        WordHashTable dictionary = this.dictionary;
+        if (dictionary == null) {
+            synchronized (loaded) {
+                dictionary = this.dictionary;
+                if (dictionary == null) {
+                    // 关键字分类的词语不可变，遍历顺序与加载时相同
+                    dictionary = new WordHashTable(loaded.cardinality());
+                    int i = 0;
+                    for (String word : wordsCategory.getWords()) {
+                        if (loaded.get(i++)) {
+                            dictionary.put(StringUtils.trim(word));
+                        }
+                    }
+                    this.dictionary = dictionary;
+                }
             }
-        });
+        }
+        return dictionary;
+    }
+
+    @Override
+    public boolean scan(boolean partMatch, String content, HitListener listener) throws RuntimeException {
+        return processor(partMatch, content, (start, end, wordId) -> listener.onHit(start, end, (wordId >= 0) ? wordId : getWordId(content, start, end), 0));
+    }
+
+    @Override
+    public boolean contains(boolean partMatch, String content) throws RuntimeException {
+        return processor(partMatch, content, FOUND);
     }
 
     @Override
     public Set<String> match(boolean partMatch, String content) throws RuntimeException {
         final Set<String> words = Sets.newHashSet();
 
-        processor(partMatch, content, new Callback() {
-            @Override
-            public boolean call(String word) {
-                words.add(word);
-                return false; // 继续匹配后面的敏感词
-            }
+        processor(partMatch, content, (start, end, wordId) -> {
+            // 跳过干扰字符的命中区间包括干扰字符，由状态给出的编号取得词语
+            words.add((wordId >= 0) ? getWord(wordId) : content.substring(start, end));
+            return false; // 继续匹配后面的敏感词
         });
 
         return words;
@@ -97,28 +498,33 @@ public abstract class BaseWordsFilter<S> extends ApplicationLogging implements W
 
     @Override
     public String highlight(boolean partMatch, String content) throws RuntimeException {
-        Set<String> words = this.match(partMatch, content);
+        return HitRewriter.highlight(content, collect(partMatch, content));
+    }
 
-        Iterator<String> iter = words.iterator();
-        while (iter.hasNext()) {
-            String word = iter.next();
-            content = content.replaceAll(word, String.format(HTML_HIGHLIGHT, word));
-        }
+    @Override
+    public String filter(boolean partMatch, String content, char replaceChar) throws RuntimeException {
+        return HitRewriter.filter(content, collect(partMatch, content), replaceChar);
+    }
 
-        return content;
+    private HitBuffer collect(boolean partMatch, String content) {
+        HitBuffer hits = new HitBuffer();
+        processor(partMatch, content, (start, end, wordId) -> hits.onHit(start, end, wordId, 0));
+        return hits;
     }
 
     @Override
-    public String filter(boolean partMatch, String content, char replaceChar) throws RuntimeException {
-        Set<String> words = this.match(partMatch, content);
+    public boolean contains(boolean partMatch, Reader reader) throws IOException {
+        return new StreamScanner(this, partMatch).contains(reader);
+    }
 
-        Iterator<String> iter = words.iterator();
-        while (iter.hasNext()) {
-            String word = iter.next();
-            content = content.replaceAll(word, Strings.repeat(String.valueOf(replaceChar), word.length()));
-        }
+    @Override
+    public Set<String> match(boolean partMatch, Reader reader) throws IOException {
+        return new StreamScanner(this, partMatch).match(reader);
+    }
 
-        return content;
+    @Override
+    public void filter(boolean partMatch, Reader reader, Writer writer, char replaceChar) throws IOException {
+        new StreamScanner(this, partMatch).filter(reader, writer, replaceChar);
     }
 
     /**
@@ -132,11 +538,13 @@ public abstract class BaseWordsFilter<S> extends ApplicationLogging implements W
         /**
          * 匹配掉敏感词回调
          *
-         * @param word 敏感词
+         * @param start  敏感词在被匹配内容中的开始位置
+         * @param end    敏感词在被匹配内容中的结束位置（不含），跳过干扰字符时区间包括干扰字符
+         * @param wordId 状态中的词语编号，与 {@link #getWordId(String, int, int)} 一致；状态不能直接给出时为-1
          * @return true 立即停止后续任务并返回，false 继续执行
          * @author hoojo
          * @createDate 2018年3月21日 上午11:48:11
          */
-        boolean call(String word);
+        boolean call(int start, int end, int wordId);
     }
 }
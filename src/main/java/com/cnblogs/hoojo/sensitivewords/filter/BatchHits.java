@@ -0,0 +1,59 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+/**
+ * 批量扫描的命中结果
+ * <p>
+ * 所有消息的命中信息连续保存在一个 {@link HitBuffer} 中，第 i 条消息的命中结果为 [from(i), to(i))，
+ * 命中位置是相对于该条消息的位置。版本号为产生结果的过滤器上下文快照版本。
+ */
+public final class BatchHits {
+
+    private final HitBuffer hits;
+    // 消息编号 -> 第一个命中结果的编号，长度为消息数 + 1
+    private final int[] bounds;
+    private final long version;
+
+    public BatchHits(HitBuffer hits, int[] bounds) {
+        this(hits, bounds, 0);
+    }
+
+    public BatchHits(HitBuffer hits, int[] bounds, long version) {
+        this.hits = hits;
+        this.bounds = bounds;
+        this.version = version;
+    }
+
+    /**
+     * 消息数
+     */
+    public int size() {
+        return bounds.length - 1;
+    }
+
+    /**
+     * 产生结果的快照版本
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public HitBuffer getHits() {
+        return hits;
+    }
+
+    public int from(int message) {
+        return bounds[message];
+    }
+
+    public int to(int message) {
+        return bounds[message + 1];
+    }
+
+    public int hitCount(int message) {
+        return bounds[message + 1] - bounds[message];
+    }
+
+    public boolean contains(int message) {
+        return bounds[message + 1] > bounds[message];
+    }
+}
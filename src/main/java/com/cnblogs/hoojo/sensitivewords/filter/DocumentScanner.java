@@ -0,0 +1,151 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * 大文档分段并行扫描
+ * <p>
+ * 被匹配内容长度超过阈值时，切分为固定长度的分段，相邻分段重叠 (最大命中跨度 - 1) 个字符，
+ * 使用 fork/join 并行调用过滤器的 {@link BaseWordsFilter#process} 扫描各分段，再合并去重；
+ * 未超过阈值时直接在调用线程上扫描。适用于任意算法实现。
+ * <p>
+ * 完整匹配时结果与整体扫描一致；部分匹配时，每个分段从分段开始位置重新匹配，分段边界附近的结果可能与整体扫描略有不同。
+ */
+public final class DocumentScanner {
+
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final BaseWordsFilter<?> filter;
+    private final int threshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    public DocumentScanner(BaseWordsFilter<?> filter) {
+        this(filter, DEFAULT_THRESHOLD, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param filter    过滤器
+     * @param threshold 内容长度超过该值时分段并行扫描
+     * @param chunkSize 分段长度（不含重叠部分）
+     * @param pool      fork/join 线程池
+     */
+    public DocumentScanner(BaseWordsFilter<?> filter, int threshold, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize必须大于0");
+        }
+        this.filter = filter;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    private boolean parallel(String content) {
+        return content != null && content.length() > threshold && content.length() > chunkSize;
+    }
+
+    /**
+     * 是否包含敏感字符，任意分段命中后其余未开始的分段不再扫描
+     *
+     * @param partMatch 是否支持匹配词语的一部分
+     * @param content   被匹配内容
+     * @return 是否包含敏感字符
+     */
+    public boolean contains(boolean partMatch, String content) {
+        if (!parallel(content)) {
+            return filter.contains(partMatch, content);
+        }
+
+        AtomicBoolean found = new AtomicBoolean();
+        pool.invoke(new ChunkTask<Boolean>(chunk -> {
+            if (found.get()) {
+                return false;
+            }
+            return filter.process(partMatch, content, chunkStart(chunk), chunkEnd(content, chunk), (start, end, wordId) -> {
+                found.set(true);
+                return true;
+            });
+        }, Boolean::logicalOr, 0, chunkCount(content)));
+        return found.get();
+    }
+
+    /**
+     * 返回匹配到的敏感词语
+     *
+     * @param partMatch 是否部分匹配
+     * @param content   被匹配的语句
+     * @return 返回匹配的敏感词语集合
+     */
+    public Set<String> match(boolean partMatch, String content) {
+        if (!parallel(content)) {
+            return filter.match(partMatch, content);
+        }
+
+        return pool.invoke(new ChunkTask<Set<String>>(chunk -> {
+            Set<String> words = Sets.newHashSet();
+            filter.process(partMatch, content, chunkStart(chunk), chunkEnd(content, chunk), (start, end, wordId) -> {
+                words.add((wordId >= 0) ? filter.getWord(wordId) : content.substring(start, end));
+                return false;
+            });
+            return words;
+        }, (left, right) -> {
+            // 重叠部分的词语会在相邻分段中重复出现，合并时去重
+            left.addAll(right);
+            return left;
+        }, 0, chunkCount(content)));
+    }
+
+    private int chunkCount(String content) {
+        return (content.length() + chunkSize - 1) / chunkSize;
+    }
+
+    private int chunkStart(int chunk) {
+        return chunk * chunkSize;
+    }
+
+    private int chunkEnd(String content, int chunk) {
+        int overlap = Math.max(filter.getMaxMatchLength() - 1, 0);
+        return (int) Math.min((long) chunkStart(chunk) + chunkSize + overlap, content.length());
+    }
+
+    /**
+     * 按分段编号区间二分拆分的 fork/join 任务
+     */
+    private static final class ChunkTask<T> extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntFunction<T> scan;
+        private final BinaryOperator<T> merge;
+        private final int from;
+        private final int to;
+
+        ChunkTask(IntFunction<T> scan, BinaryOperator<T> merge, int from, int to) {
+            this.scan = scan;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from == 1) {
+                return scan.apply(from);
+            }
+
+            int mid = (from + to) >>> 1;
+            ChunkTask<T> left = new ChunkTask<>(scan, merge, from, mid);
+            left.fork();
+            T right = new ChunkTask<>(scan, merge, mid, to).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import java.util.BitSet;
+
+/**
+ * 过滤器选项
+ * <p>
+ * 干扰字符跳过：匹配词语时，两个词语字符之间最多允许连续出现 maxGap 个干扰字符（例如 "法*轮 功"、零宽空格），
+ * 命中位置包括中间的干扰字符。词语的第一个字符不能是干扰字符。目前由 DFA 和 TIRE 算法支持。
+ * <p>
+ * 堆外存储：编译后的自动机数组保存在直接内存中，堆上只保留缓冲区句柄，自动机大小不再影响GC扫描。目前由 DAAC 算法支持。
+ * 词语本身仍在堆上：过滤器保留关键字分类，用于压缩增量词语和保存快照；DAAC 的词语编号由自动机直接给出，按编号取词语只保存分类中词语的引用数组，不再另外构建词语表。
+ * <p>
+ * 算法不支持的选项在创建过滤器时抛出异常，{@link com.cnblogs.hoojo.sensitivewords.context.DefaultWordsFilterContext#buildFilter} 中为 CreateWordsFilterException。
+ */
+public final class FilterOptions {
+
+    /**
+     * 默认的干扰字符：空白、常见标点符号和零宽字符
+     */
+    public static final String DEFAULT_NOISE_CHARS = " \t*-_.,;:!?~|/\\·•、，。！？\u3000\u200B\u200C\u200D\u2060\uFEFF";
+    public static final int DEFAULT_MAX_GAP = 2;
+
+    /**
+     * 不跳过任何字符
+     */
+    public static final FilterOptions NONE = new FilterOptions(new BitSet(), 0, false);
+
+    private final BitSet noiseChars;
+    private final int maxGap;
+    private final boolean offHeap;
+
+    private FilterOptions(BitSet noiseChars, int maxGap, boolean offHeap) {
+        this.noiseChars = noiseChars;
+        this.maxGap = maxGap;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * 使用默认的干扰字符和间隔
+     */
+    public static FilterOptions skipNoise() {
+        return skipNoise(DEFAULT_NOISE_CHARS, DEFAULT_MAX_GAP);
+    }
+
+    /**
+     * @param noiseChars 干扰字符
+     * @param maxGap     两个词语字符之间最多连续跳过的干扰字符数
+     */
+    public static FilterOptions skipNoise(String noiseChars, int maxGap) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("maxGap不能小于0");
+        }
+
+        BitSet chars = new BitSet(Character.MAX_VALUE + 1);
+        for (int i = 0; i < noiseChars.length(); i++) {
+            chars.set(noiseChars.charAt(i));
+        }
+        return new FilterOptions(chars, maxGap, false);
+    }
+
+    /**
+     * 在当前选项基础上使用堆外存储
+     */
+    public FilterOptions withOffHeap() {
+        return new FilterOptions(noiseChars, maxGap, true);
+    }
+
+    public boolean isNoise(char c) {
+        return noiseChars.get(c);
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    public boolean isSkipNoise() {
+        return maxGap > 0 && !noiseChars.isEmpty();
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+}
@@ -0,0 +1,212 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 编译后过滤器的二进制快照
+ * <p>
+ * 文件格式（小端序，按4字节对齐）：
+ * <pre>
+ * 头部  magic(int) version(int) 内容长度(int) 内容CRC32(int)
+ * 内容  过滤器类名 分类名 词语数(int) 词语... 分段数(int) [分段长度(int) 分段数据(int...)]...
+ * </pre>
+ * 字符串保存为 长度(int) + UTF-16 字符，词语按词语编号顺序保存，分段为过滤器自行定义的 int 数组。
+ * <p>
+ * 打开时使用 {@link FileChannel#map} 映射文件并校验版本和CRC32，分段以映射内存上的只读 {@link IntBuffer} 返回，不复制数据。
+ */
+public final class FilterSnapshot {
+
+    public static final int MAGIC = 0x53574653;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private final String type;
+    private final String category;
+    private final List<String> words;
+    private final IntBuffer[] sections;
+
+    private FilterSnapshot(String type, String category, List<String> words, IntBuffer[] sections) {
+        this.type = type;
+        this.category = category;
+        this.words = words;
+        this.sections = sections;
+    }
+
+    /**
+     * 写入快照文件，先写临时文件再替换目标文件，读取方不会看到写了一半的快照
+     *
+     * @param file     快照文件
+     * @param type     过滤器类名
+     * @param category 关键字分类
+     * @param words    按词语编号排列的词语
+     * @param sections 过滤器状态分段
+     */
+    public static void write(Path file, String type, String category, List<String> words, IntBuffer... sections) throws IOException {
+        long length = sizeOf(type) + sizeOf(category) + Integer.BYTES;
+        for (String word : words) {
+            length += sizeOf(word);
+        }
+        length += Integer.BYTES;
+        for (IntBuffer section : sections) {
+            length += Integer.BYTES + (long) section.remaining() * Integer.BYTES;
+        }
+        if (HEADER_SIZE + length > Integer.MAX_VALUE) {
+            throw new IOException(String.format("快照超过2GB：%s, %s", category, length));
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_SIZE);
+        putString(buffer, type);
+        putString(buffer, category);
+        buffer.putInt(words.size());
+        for (String word : words) {
+            putString(buffer, word);
+        }
+        buffer.putInt(sections.length);
+        for (IntBuffer section : sections) {
+            int count = section.remaining();
+            buffer.putInt(count);
+            buffer.asIntBuffer().put(section.duplicate());
+            buffer.position(buffer.position() + count * Integer.BYTES);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(HEADER_SIZE).limit(buffer.capacity()));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, (int) length);
+        buffer.putInt(12, (int) crc.getValue());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 映射并校验快照文件
+     *
+     * @throws IOException 文件不是快照、版本不支持或校验失败
+     */
+    public static FilterSnapshot open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("快照文件大小错误：%s, %s", file, size));
+            }
+            // 映射在通道关闭后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException(String.format("不是过滤器快照文件：%s", file));
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("不支持的快照版本：%s, version=%s", file, buffer.getInt(4)));
+        }
+        if (buffer.getInt(8) != buffer.capacity() - HEADER_SIZE) {
+            throw new IOException(String.format("快照文件不完整：%s", file));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(HEADER_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(12)) {
+            throw new IOException(String.format("快照文件校验失败：%s", file));
+        }
+
+        try {
+            buffer.position(HEADER_SIZE);
+            String type = getString(buffer);
+            String category = getString(buffer);
+
+            int wordCount = buffer.getInt();
+            List<String> words = Lists.newArrayListWithCapacity(wordCount);
+            for (int i = 0; i < wordCount; i++) {
+                words.add(getString(buffer));
+            }
+
+            IntBuffer[] sections = new IntBuffer[buffer.getInt()];
+            for (int i = 0; i < sections.length; i++) {
+                int bytes = buffer.getInt() * Integer.BYTES;
+                sections[i] = buffer.slice(buffer.position(), bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                buffer.position(buffer.position() + bytes);
+            }
+
+            return new FilterSnapshot(type, category, Collections.unmodifiableList(words), sections);
+        } catch (RuntimeException e) {
+            throw new IOException(String.format("快照文件格式错误：%s", file), e);
+        }
+    }
+
+    private static long sizeOf(String s) {
+        return Integer.BYTES + align((long) s.length() * Character.BYTES);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+
+    private static void putString(ByteBuffer buffer, String s) {
+        buffer.putInt(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer.putChar(s.charAt(i));
+        }
+        buffer.position((int) align(buffer.position()));
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        char[] chars = new char[buffer.getInt()];
+        buffer.asCharBuffer().get(chars);
+        buffer.position((int) align(buffer.position() + (long) chars.length * Character.BYTES));
+        return new String(chars);
+    }
+
+    /**
+     * 过滤器类名
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * 按词语编号排列的词语
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * 过滤器状态分段，只读，直接读取映射的文件内容
+     */
+    public IntBuffer getSection(int index) {
+        return sections[index].duplicate();
+    }
+}
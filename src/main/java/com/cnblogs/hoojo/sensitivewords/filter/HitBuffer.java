@@ -0,0 +1,78 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import java.util.Arrays;
+
+/**
+ * 可重复使用的命中结果缓冲区
+ * <p>
+ * 命中信息保存在基本类型数组中，容量不足时成倍扩容；处理下一条内容前调用 {@link #clear()}，已分配的数组继续使用。
+ * 非线程安全，每个线程使用自己的实例。
+ */
+public final class HitBuffer implements HitListener {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] starts;
+    private int[] ends;
+    private int[] wordIds;
+    private int[] categories;
+    private int size;
+
+    public HitBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HitBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.wordIds = new int[capacity];
+        this.categories = new int[capacity];
+    }
+
+    @Override
+    public boolean onHit(int start, int end, int wordId, int category) {
+        if (size == starts.length) {
+            int capacity = size << 1;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            wordIds = Arrays.copyOf(wordIds, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+        }
+
+        starts[size] = start;
+        ends[size] = end;
+        wordIds[size] = wordId;
+        categories[size] = category;
+        size++;
+        return false; // 继续匹配后面的敏感词
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    public int getWordId(int index) {
+        return wordIds[index];
+    }
+
+    public int getCategory(int index) {
+        return categories[index];
+    }
+}
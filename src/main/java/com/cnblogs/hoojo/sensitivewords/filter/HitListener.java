@@ -0,0 +1,19 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+/**
+ * 敏感词命中回调，命中信息全部以基本类型传递，不创建字符串
+ */
+@FunctionalInterface
+public interface HitListener {
+
+    /**
+     * 匹配到敏感词回调
+     *
+     * @param start    敏感词在被匹配内容中的开始位置
+     * @param end      敏感词在被匹配内容中的结束位置（不含）
+     * @param wordId   词语编号，通过 {@link WordsFilter#getWord(int)} 取得词语；不是已加载的词语时为-1
+     * @param category 分类编号，即过滤器在上下文中的顺序；单个过滤器扫描时为0
+     * @return true 立即停止后续任务并返回，false 继续执行
+     */
+    boolean onHit(int start, int end, int wordId, int category);
+}
@@ -0,0 +1,107 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import java.util.Arrays;
+
+/**
+ * 根据命中位置一次性改写被匹配内容
+ * <p>
+ * 替换时复制一次内容并按命中区间填充替换字符；高亮时把命中区间按开始位置排序，合并重叠或相邻的区间，
+ * 再按顺序写入预先分配容量的 {@link StringBuilder}。不使用正则表达式，词语中的特殊字符不需要转义。
+ */
+public final class HitRewriter {
+
+    public static final String HIGHLIGHT_PREFIX = "<font color='red'>";
+    public static final String HIGHLIGHT_SUFFIX = "</font>";
+
+    private HitRewriter() {
+    }
+
+    /**
+     * 把全部命中区间替换为指定字符
+     *
+     * @param content     被匹配的语句
+     * @param hits        命中结果
+     * @param replaceChar 替换字符
+     * @return 过滤后的字符串
+     */
+    public static String filter(String content, HitBuffer hits, char replaceChar) {
+        return filter(content, hits, Integer.MAX_VALUE, replaceChar);
+    }
+
+    /**
+     * 把分类编号不大于 maxCategory 的命中区间替换为指定字符
+     *
+     * @param content     被匹配的语句
+     * @param hits        命中结果
+     * @param maxCategory 最大分类编号
+     * @param replaceChar 替换字符
+     * @return 过滤后的字符串
+     */
+    public static String filter(String content, HitBuffer hits, int maxCategory, char replaceChar) {
+        char[] chars = null;
+        for (int i = 0; i < hits.size(); i++) {
+            if (hits.getCategory(i) > maxCategory) {
+                continue;
+            }
+            if (chars == null) {
+                chars = content.toCharArray();
+            }
+            Arrays.fill(chars, hits.getStart(i), hits.getEnd(i), replaceChar);
+        }
+
+        return (chars == null) ? content : new String(chars);
+    }
+
+    /**
+     * html高亮全部命中区间
+     *
+     * @param content 被匹配的语句
+     * @param hits    命中结果
+     * @return 返回html高亮敏感词
+     */
+    public static String highlight(String content, HitBuffer hits) {
+        return highlight(content, hits, Integer.MAX_VALUE);
+    }
+
+    /**
+     * html高亮分类编号不大于 maxCategory 的命中区间，重叠或相邻的区间合并为一个高亮标签
+     *
+     * @param content     被匹配的语句
+     * @param hits        命中结果
+     * @param maxCategory 最大分类编号
+     * @return 返回html高亮敏感词
+     */
+    public static String highlight(String content, HitBuffer hits, int maxCategory) {
+        // 区间编码为 (开始位置 << 32 | 结束位置)，排序后即按开始位置有序
+        long[] ranges = new long[hits.size()];
+        int count = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            if (hits.getCategory(i) <= maxCategory) {
+                ranges[count++] = ((long) hits.getStart(i) << 32) | hits.getEnd(i);
+            }
+        }
+        if (count == 0) {
+            return content;
+        }
+        Arrays.sort(ranges, 0, count);
+
+        StringBuilder builder = new StringBuilder(content.length() + count * (HIGHLIGHT_PREFIX.length() + HIGHLIGHT_SUFFIX.length()));
+        int position = 0;
+        for (int i = 0; i < count; ) {
+            int start = (int) (ranges[i] >>> 32);
+            int end = (int) ranges[i];
+            for (i++; i < count && (int) (ranges[i] >>> 32) <= end; i++) {
+                end = Math.max(end, (int) ranges[i]);
+            }
+
+            builder.append(content, position, start)
+                    .append(HIGHLIGHT_PREFIX)
+                    .append(content, start, end)
+                    .append(HIGHLIGHT_SUFFIX);
+            position = end;
+        }
+        builder.append(content, position, content.length());
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 流式扫描
+ * <p>
+ * 每次从 {@link Reader} 读入固定长度的缓冲区，与上一个窗口末尾 (最大命中跨度 - 1) 个字符拼接为新的窗口扫描，
+ * 任意一个词语都会完整地落在某个窗口中；内存占用只与缓冲区长度和最大词语长度有关，与内容总长度无关。
+ * <p>
+ * 窗口之间不保存算法内部的匹配状态，而是重新扫描重叠部分，因此适用于任意算法实现；
+ * 部分匹配时，窗口边界附近的结果可能与整体扫描略有不同。
+ */
+final class StreamScanner {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final BaseWordsFilter<?> filter;
+    private final boolean partMatch;
+
+    // 当前窗口：[0, length)，其中 [0, carry) 为上一个窗口保留下来的字符
+    private final char[] window;
+    // 窗口字符是否需要被替换
+    private final boolean[] marks;
+    private final int overlap;
+    private int length;
+    private int carry;
+
+    StreamScanner(BaseWordsFilter<?> filter, boolean partMatch) {
+        this.filter = filter;
+        this.partMatch = partMatch;
+        this.overlap = Math.max(filter.getMaxMatchLength() - 1, 0);
+        this.window = new char[overlap + BUFFER_SIZE];
+        this.marks = new boolean[window.length];
+    }
+
+    /**
+     * 读入下一个窗口
+     *
+     * @return 是否有新读入的字符，false 表示内容已经结束
+     */
+    private boolean next(Reader reader) throws IOException {
+        int n;
+        while (length < window.length && (n = reader.read(window, length, window.length - length)) >= 0) {
+            length += n;
+        }
+        return length > carry;
+    }
+
+    /**
+     * 保留窗口末尾的重叠字符，作为下一个窗口的开始
+     *
+     * @return 被移出窗口的字符数
+     */
+    private int slide(boolean eof) {
+        int keep = eof ? 0 : Math.min(overlap, length);
+        int flushed = length - keep;
+        System.arraycopy(window, flushed, window, 0, keep);
+        System.arraycopy(marks, flushed, marks, 0, keep);
+        Arrays.fill(marks, keep, marks.length, false);
+        length = keep;
+        carry = keep;
+        return flushed;
+    }
+
+    boolean contains(Reader reader) throws IOException {
+        while (next(reader)) {
+            if (filter.contains(partMatch, new String(window, 0, length))) {
+                return true;
+            }
+            slide(length < window.length);
+        }
+        return false;
+    }
+
+    Set<String> match(Reader reader) throws IOException {
+        Set<String> words = Sets.newHashSet();
+        while (next(reader)) {
+            words.addAll(filter.match(partMatch, new String(window, 0, length)));
+            slide(length < window.length);
+        }
+        return words;
+    }
+
+    void filter(Reader reader, Writer writer, char replaceChar) throws IOException {
+        while (next(reader)) {
+            String content = new String(window, 0, length);
+
+            filter.processor(partMatch, content, (start, end, wordId) -> {
+                Arrays.fill(marks, start, end, true);
+                return false;
+            });
+
+            boolean eof = length < window.length;
+            int flushed = length - (eof ? 0 : Math.min(overlap, length));
+            for (int i = 0; i < flushed; i++) {
+                if (marks[i]) {
+                    window[i] = replaceChar;
+                }
+            }
+            writer.write(window, 0, flushed);
+            slide(eof);
+        }
+
+        // 最后一个窗口没有新字符时，保留的字符已在上一个窗口中扫描过
+        for (int i = 0; i < length; i++) {
+            if (marks[i]) {
+                window[i] = replaceChar;
+            }
+        }
+        writer.write(window, 0, length);
+        writer.flush();
+    }
+}
@@ -0,0 +1,153 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import java.util.Arrays;
+
+/**
+ * 敏感词指纹表
+ * <p>
+ * 以多项式hash作为词语指纹，使用开放寻址的基本类型数组保存，支持直接按被匹配内容的区间查找，
+ * 命中后通过 {@link String#regionMatches(int, String, int, int)} 校验，查找过程不需要截取子串。
+ * <p>
+ * 指纹可以在扫描内容时逐字符滚动计算：{@code hash = WordHashTable.next(hash, c)}，初始值为0。
+ */
+public final class WordHashTable {
+
+    private static final long PRIME = 0x100000001B3L;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // 槽位 -> 词语指纹
+    private long[] hashes;
+    // 槽位 -> 词语编号 + 1，0表示空槽位
+    private int[] slots;
+    // 词语编号 -> 词语
+    private String[] words;
+    private int size;
+
+    public WordHashTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public WordHashTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, DEFAULT_CAPACITY) * 2 - 1) << 1;
+        this.hashes = new long[capacity];
+        this.slots = new int[capacity];
+        this.words = new String[Math.max(expectedSize, DEFAULT_CAPACITY)];
+    }
+
+    /**
+     * 在已有指纹后追加一个字符
+     */
+    public static long next(long hash, char c) {
+        return hash * PRIME + c;
+    }
+
+    /**
+     * 计算内容区间 [start, end) 的指纹
+     */
+    public static long hash(CharSequence content, int start, int end) {
+        long hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = next(hash, content.charAt(i));
+        }
+        return hash;
+    }
+
+    private static int spread(long hash) {
+        hash ^= (hash >>> 33);
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= (hash >>> 33);
+        return (int) hash;
+    }
+
+    /**
+     * 添加词语
+     *
+     * @return 词语编号，已存在时返回原有编号
+     */
+    public int put(String word) {
+        long hash = hash(word, 0, word.length());
+        int id = find(word, 0, word.length(), hash);
+        if (id >= 0) {
+            return id;
+        }
+
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length << 1);
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size << 1);
+        }
+
+        id = size++;
+        words[id] = word;
+        insert(hash, id);
+        return id;
+    }
+
+    private void insert(long hash, int id) {
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        slots[slot] = id + 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldHashes = hashes;
+        int[] oldSlots = slots;
+
+        hashes = new long[capacity];
+        slots = new int[capacity];
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                insert(oldHashes[i], oldSlots[i] - 1);
+            }
+        }
+    }
+
+    /**
+     * 查找内容区间 [start, end) 对应的词语
+     *
+     * @param hash 区间的指纹
+     * @return 词语编号，不存在时返回-1
+     */
+    public int find(CharSequence content, int start, int end, long hash) {
+        int length = end - start;
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+
+        int id;
+        while ((id = slots[slot]) != 0) {
+            if (hashes[slot] == hash && matches(words[id - 1], content, start, length)) {
+                return id - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String word, CharSequence content, int start, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        if (content instanceof String) {
+            return ((String) content).regionMatches(start, word, 0, length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != content.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getWord(int id) {
+        return words[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,121 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 过滤器的增量词语，不可变
+ * <p>
+ * 新增的词语保存在 {@link WordHashTable} 中，匹配时在每个位置上滚动计算指纹查找，代价与增量词语的最大长度成正比，
+ * 只适合少量词语；删除的词语在主过滤器命中时按词语编号（主过滤器给出编号时）或区间查找后丢弃。增量过多时应合并为新的过滤器。
+ * <p>
+ * 对过滤器外部只作为合并起点使用，见 {@link BaseWordsFilter#carryDelta(WordsDelta, BaseWordsFilter)}。
+ */
+public final class WordsDelta {
+
+    static final WordsDelta EMPTY = new WordsDelta(ImmutableSet.of(), ImmutableSet.of(), new int[0]);
+
+    // 主过滤器中没有的新增词语
+    private final ImmutableSet<String> added;
+    // 主过滤器中已删除的词语
+    private final ImmutableSet<String> removed;
+
+    private final WordHashTable addedWords;
+    private final WordHashTable removedWords;
+    // 删除词语在主过滤器中的编号，升序
+    private final int[] removedIds;
+    private final int maxLength;
+
+    WordsDelta(Collection<String> added, Collection<String> removed, int[] removedIds) {
+        this.added = ImmutableSet.copyOf(added);
+        this.removed = ImmutableSet.copyOf(removed);
+
+        this.addedWords = new WordHashTable(this.added.size());
+        int length = 0;
+        for (String word : this.added) {
+            addedWords.put(word);
+            length = Math.max(length, word.length());
+        }
+        this.maxLength = length;
+
+        this.removedWords = new WordHashTable(this.removed.size());
+        for (String word : this.removed) {
+            removedWords.put(word);
+        }
+        this.removedIds = removedIds.clone();
+        Arrays.sort(this.removedIds);
+    }
+
+    boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    int size() {
+        return added.size() + removed.size();
+    }
+
+    ImmutableSet<String> getAdded() {
+        return added;
+    }
+
+    ImmutableSet<String> getRemoved() {
+        return removed;
+    }
+
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 主过滤器的命中是否是已删除的词语。跳过干扰字符时命中区间包括干扰字符，需要使用主过滤器给出的词语编号判断
+     *
+     * @param wordId 命中的词语编号，主过滤器不能给出编号时为-1，此时按区间查找
+     */
+    boolean isRemoved(CharSequence content, int start, int end, int wordId) {
+        if (removed.isEmpty()) {
+            return false;
+        }
+        if (wordId >= 0) {
+            return Arrays.binarySearch(removedIds, wordId) >= 0;
+        }
+        return removedWords.find(content, start, end, WordHashTable.hash(content, start, end)) >= 0;
+    }
+
+    /**
+     * @return 新增词语的编号，不存在时返回-1
+     */
+    int find(CharSequence content, int start, int end) {
+        if (addedWords.size() == 0) {
+            return -1;
+        }
+        return addedWords.find(content, start, end, WordHashTable.hash(content, start, end));
+    }
+
+    String getWord(int id) {
+        return addedWords.getWord(id);
+    }
+
+    /**
+     * 完整匹配新增词语，部分匹配由 {@link BaseWordsFilter} 在全部命中中选择
+     */
+    boolean processor(String content, int start, int end, BaseWordsFilter.Callback callback) {
+        if (addedWords.size() == 0) {
+            return false;
+        }
+
+        for (int index = start; index < end; index++) {
+            int limit = Math.min(end, index + maxLength);
+
+            long hash = 0;
+            for (int i = index; i < limit; i++) {
+                hash = WordHashTable.next(hash, content.charAt(i));
+                if (addedWords.find(content, index, i + 1, hash) >= 0 && callback.call(index, i + 1, -1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,9 @@ package com.cnblogs.hoojo.sensitivewords.filter;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Set;
 
 /**
@@ -19,6 +22,28 @@ public interface WordsFilter {
      */
     WordsCategory getWordsCategory();
 
+    /**
+     * 逐个回调匹配到的敏感词位置，不创建字符串
+     *
+     * @param partMatch 是否部分匹配
+     * @param content   被匹配的语句
+     * @param listener  命中回调，分类编号为0
+     * @return 是否被回调中止
+     */
+    boolean scan(boolean partMatch, String content, HitListener listener);
+
+    /**
+     * 内容区间 [start, end) 对应的词语编号
+     *
+     * @return 词语编号，不是已加载的词语时返回-1
+     */
+    int getWordId(String content, int start, int end);
+
+    /**
+     * 词语编号对应的词语
+     */
+    String getWord(int wordId);
+
     /**
      * 是否包含敏感字符
      *
@@ -56,4 +81,34 @@ public interface WordsFilter {
      */
     String filter(boolean partMatch, String content, char replaceChar);
 
+    /**
+     * 流式判断是否包含敏感字符，内存占用与内容长度无关
+     *
+     * @param partMatch 是否支持匹配词语的一部分
+     * @param reader    被匹配内容
+     * @return 是否包含敏感字符
+     * @throws IOException 读取内容失败
+     */
+    boolean contains(boolean partMatch, Reader reader) throws IOException;
+
+    /**
+     * 流式返回匹配到的敏感词语，内存占用与内容长度无关
+     *
+     * @param partMatch 是否部分匹配
+     * @param reader    被匹配的内容
+     * @return 返回匹配的敏感词语集合
+     * @throws IOException 读取内容失败
+     */
+    Set<String> match(boolean partMatch, Reader reader) throws IOException;
+
+    /**
+     * 流式过滤敏感词，把敏感词替换为指定字符后写出，内存占用与内容长度无关
+     *
+     * @param partMatch   是否部分匹配
+     * @param reader      被匹配的内容
+     * @param writer      过滤后的内容
+     * @param replaceChar 替换字符
+     * @throws IOException 读写内容失败
+     */
+    void filter(boolean partMatch, Reader reader, Writer writer, char replaceChar) throws IOException;
 }
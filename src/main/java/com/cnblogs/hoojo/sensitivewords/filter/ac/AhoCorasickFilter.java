@@ -0,0 +1,195 @@
+package com.cnblogs.hoojo.sensitivewords.filter.ac;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Aho-Corasick 多模式匹配算法脱敏实现
+ * <p>
+ * 在tire树上构建失败指针和输出指针，被匹配内容只需从左到右扫描一遍，不需要回溯，
+ * 扫描耗时与内容长度成线性关系，与敏感词的长度无关。
+ * <p>
+ * 完整匹配时一遍扫描，结果与 DFA 算法一致；部分匹配沿用 DFA 的语义：从每个开始位置沿 tire 树向下查找最短的词语，
+ * 然后跳过已查找的字符（见 {@link #prefixMatch}），只使用 tire 树的转移，不使用失败指针。
+ */
+public final class AhoCorasickFilter extends BaseWordsFilter<AhoCorasickNode> {
+
+    public AhoCorasickFilter(WordsCategory wordSet) {
+        super(wordSet);
+    }
+
+    @Override
+    protected AhoCorasickNode createState() {
+        return new AhoCorasickNode(' ', 0);
+    }
+
+    @Override
+    protected boolean putOneWord(AhoCorasickNode state, String word) throws RuntimeException {
+
+        if (StringUtils.isBlank(word)) {
+            return false;
+        }
+
+        word = StringUtils.trim(word);
+        if (word.length() < 2) {
+            return false;
+        }
+
+        AhoCorasickNode node = state;
+        for (int i = 0; i < word.length(); i++) {
+            char nextChar = word.charAt(i);
+
+            AhoCorasickNode nextNode = node.find(nextChar);
+            if (nextNode == null) {
+                nextNode = new AhoCorasickNode(nextChar, i + 1);
+                node.addChild(nextNode);
+            }
+            node = nextNode;
+        }
+        node.setWord(true);
+
+        return true;
+    }
+
+    /**
+     * 按层次遍历构建失败指针和输出指针，同时按遍历顺序为敏感词结尾节点编号
+     */
+    @Override
+    protected void loadCompete(WordsCategory wordSet, AhoCorasickNode root) {
+        LinkedList<AhoCorasickNode> queue = Lists.newLinkedList();
+        List<AhoCorasickNode> wordNodes = Lists.newArrayList();
+
+        root.setFail(root);
+        if (!root.isLeaf()) {
+            for (AhoCorasickNode child : root.getChilds().values()) {
+                child.setFail(root);
+                queue.add(child);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            AhoCorasickNode node = queue.poll();
+            if (node.isWord()) {
+                node.setWordId(wordNodes.size());
+                wordNodes.add(node);
+            }
+            if (node.isLeaf()) {
+                continue;
+            }
+
+            for (AhoCorasickNode child : node.getChilds().values()) {
+                AhoCorasickNode fail = node.getFail();
+                while (fail != root && fail.find(child.getChar()) == null) {
+                    fail = fail.getFail();
+                }
+
+                AhoCorasickNode target = fail.find(child.getChar());
+                child.setFail(target == null ? root : target);
+                child.setOutput(child.getFail().isWord() ? child.getFail() : child.getFail().getOutput());
+
+                queue.add(child);
+            }
+        }
+        root.setWordNodes(wordNodes.toArray(new AhoCorasickNode[0]));
+    }
+
+    @Override
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        if (partMatch) {
+            return prefixMatch(content, start, end, callback);
+        }
+
+        AhoCorasickNode root = getState();
+        AhoCorasickNode node = root;
+        for (int index = start; index < end; index++) {
+            char wordChar = content.charAt(index);
+
+            AhoCorasickNode next = node.find(wordChar);
+            while (next == null && node != root) {
+                node = node.getFail();
+                next = node.find(wordChar);
+            }
+            node = (next == null) ? root : next;
+
+            // 当前节点即为最长的命中词，输出指针链上依次为更短的命中词
+            AhoCorasickNode hit = node.isWord() ? node : node.getOutput();
+            while (hit != null) {
+                if (callback.call(index - hit.getDepth() + 1, index + 1, hit.getWordId())) {
+                    return true;
+                }
+                hit = hit.getOutput();
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 部分匹配，与 DFA 算法相同：从开始位置向下查找到第一个词语即回调，然后跳过本次查找经过的字符和其后的一个字符
+     */
+    private boolean prefixMatch(String content, int start, int end, Callback callback) {
+        AhoCorasickNode root = getState();
+        for (int index = start; index < end; index++) {
+            AhoCorasickNode node = root.find(content.charAt(index));
+            if (node == null || node.isLeaf()) {
+                continue;
+            }
+
+            int charCount = 1;
+            for (int i = index + 1; i < end; i++) {
+                node = node.find(content.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                charCount++;
+
+                if (node.isWord()) {
+                    if (callback.call(index, index + charCount, node.getWordId())) {
+                        return true;
+                    }
+                    break;
+                }
+                if (node.isLeaf()) {
+                    break;
+                }
+            }
+
+            index += charCount;
+        }
+
+        return false;
+    }
+
+    /**
+     * 词语编号保存在敏感词结尾节点上，匹配时直接由节点给出
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        AhoCorasickNode node = getState();
+        for (int i = start; i < end && node != null; i++) {
+            node = node.find(content.charAt(i));
+        }
+        return (node == null || !node.isWord()) ? -1 : node.getWordId();
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        AhoCorasickNode[] wordNodes = getState().getWordNodes();
+        return (wordId >= 0 && wordId < wordNodes.length) ? wordNodes[wordId].getPath() : null;
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getWordNodes().length;
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getWordNodes().length;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cnblogs.hoojo.sensitivewords.filter.ac;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Aho-Corasick 自动机节点，在tire树的基础上增加失败指针和输出指针
+ */
+public class AhoCorasickNode {
+
+    private char _char;
+    // 节点深度，即从根节点到当前节点的字符数；为敏感词结尾时等于词语长度
+    private int depth;
+    private boolean word;
+    // 词语编号，敏感词结尾节点按层次遍历顺序编号，其余节点为-1
+    private int wordId = -1;
+    private AhoCorasickNode parent;
+    private Map<Character, AhoCorasickNode> childs;
+
+    // 失败指针：当前路径的最长真后缀所对应的节点
+    private AhoCorasickNode fail;
+    // 输出指针：沿失败指针找到的第一个敏感词结尾节点
+    private AhoCorasickNode output;
+
+    // 仅根节点使用：词语编号 -> 敏感词结尾节点
+    private AhoCorasickNode[] wordNodes;
+
+    public AhoCorasickNode() {
+    }
+
+    public AhoCorasickNode(char _char, int depth) {
+        this._char = _char;
+        this.depth = depth;
+    }
+
+    public char getChar() {
+        return _char;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isWord() {
+        return word;
+    }
+
+    public void setWord(boolean word) {
+        this.word = word;
+    }
+
+    public int getWordId() {
+        return wordId;
+    }
+
+    public void setWordId(int wordId) {
+        this.wordId = wordId;
+    }
+
+    public AhoCorasickNode getParent() {
+        return parent;
+    }
+
+    /**
+     * 沿父节点还原从根节点到当前节点的字符串
+     */
+    public String getPath() {
+        char[] path = new char[depth];
+        for (AhoCorasickNode node = this; node.depth > 0; node = node.parent) {
+            path[node.depth - 1] = node._char;
+        }
+        return new String(path);
+    }
+
+    public boolean isLeaf() {
+        return (childs == null || childs.isEmpty());
+    }
+
+    public Map<Character, AhoCorasickNode> getChilds() {
+        return childs;
+    }
+
+    public AhoCorasickNode find(char _char) {
+        if (this.childs == null) {
+            return null;
+        }
+        return this.childs.get(_char);
+    }
+
+    public void addChild(AhoCorasickNode child) {
+        if (this.childs == null) {
+            childs = Maps.newHashMap();
+        }
+
+        this.childs.put(child.getChar(), child);
+        child.parent = this;
+    }
+
+    public AhoCorasickNode getFail() {
+        return fail;
+    }
+
+    public void setFail(AhoCorasickNode fail) {
+        this.fail = fail;
+    }
+
+    public AhoCorasickNode getOutput() {
+        return output;
+    }
+
+    public void setOutput(AhoCorasickNode output) {
+        this.output = output;
+    }
+
+    public AhoCorasickNode[] getWordNodes() {
+        return wordNodes;
+    }
+
+    public void setWordNodes(AhoCorasickNode[] wordNodes) {
+        this.wordNodes = wordNodes;
+    }
+}
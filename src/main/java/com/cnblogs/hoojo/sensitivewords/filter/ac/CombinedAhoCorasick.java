@@ -0,0 +1,308 @@
+package com.cnblogs.hoojo.sensitivewords.filter.ac;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Chars;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多个关键字分类合并的 Aho-Corasick 自动机
+ * <p>
+ * 所有分类的词语编译到同一个自动机中，每个词语结尾节点保存所属分类的位掩码（第 k 位表示第 k 个分类），
+ * 被匹配内容扫描一遍即可得到全部分类的命中结果。最多支持 {@link #MAX_CATEGORIES} 个分类。
+ * <p>
+ * 节点编号按广度优先顺序分配，子节点按字符排序使用二分查找，根节点的子节点使用 65536 长度的索引表直接定位。
+ * 每个分类的命中结果与该分类单独使用 {@link AhoCorasickFilter} 的结果一致。
+ */
+public final class CombinedAhoCorasick {
+
+    public static final int MAX_CATEGORIES = Long.SIZE;
+
+    private static final int ROOT = 0;
+
+    private final String[] categories;
+
+    // 首字符 -> 节点编号，0表示不存在
+    private final int[] roots;
+    // 节点编号 -> 节点字符
+    private final char[] labels;
+    // 节点编号 -> 第一个子节点编号
+    private final int[] childs;
+    // 节点编号 -> 节点深度
+    private final int[] depths;
+    // 节点编号 -> 以该节点结尾的词语所属分类的位掩码
+    private final long[] masks;
+    // 节点编号 -> 经过该节点的词语所属分类的位掩码，即该节点在哪些分类各自的 tire 树中
+    private final long[] reaches;
+    // 失败指针
+    private final int[] fail;
+    // 输出指针：沿失败指针找到的第一个词语结尾节点，0表示不存在
+    private final int[] outLink;
+
+    public CombinedAhoCorasick(List<WordsCategory> wordsCategories) {
+        if (wordsCategories.size() > MAX_CATEGORIES) {
+            throw new IllegalArgumentException(String.format("合并自动机最多支持%s个关键字分类，实际%s个", MAX_CATEGORIES, wordsCategories.size()));
+        }
+
+        categories = new String[wordsCategories.size()];
+
+        // 加载阶段的tire树
+        List<Map<Character, Integer>> edges = Lists.newArrayList();
+        List<Long> wordMasks = Lists.newArrayList();
+        edges.add(Maps.newHashMap());
+        wordMasks.add(0L);
+
+        for (int k = 0; k < wordsCategories.size(); k++) {
+            categories[k] = wordsCategories.get(k).getCategory();
+
+            for (String word : wordsCategories.get(k).getWords()) {
+                if (StringUtils.isBlank(word)) {
+                    continue;
+                }
+                word = StringUtils.trim(word);
+                if (word.length() < 2) {
+                    continue;
+                }
+
+                int node = ROOT;
+                for (int i = 0; i < word.length(); i++) {
+                    Integer next = edges.get(node).get(word.charAt(i));
+                    if (next == null) {
+                        next = edges.size();
+                        edges.get(node).put(word.charAt(i), next);
+                        edges.add(Maps.newHashMap());
+                        wordMasks.add(0L);
+                    }
+                    node = next;
+                }
+                wordMasks.set(node, wordMasks.get(node) | (1L << k));
+            }
+        }
+
+        int count = edges.size();
+        roots = new int[Character.MAX_VALUE + 1];
+        labels = new char[count];
+        childs = new int[count + 1];
+        depths = new int[count];
+        masks = new long[count];
+        reaches = new long[count];
+        fail = new int[count];
+        outLink = new int[count];
+
+        // 按广度优先顺序重新编号，order[新编号] = 原编号
+        int[] order = new int[count];
+        int[] parents = new int[count];
+        int tail = 1;
+        for (int head = 0; head < count; head++) {
+            Map<Character, Integer> edge = edges.get(order[head]);
+            masks[head] = wordMasks.get(order[head]);
+            childs[head] = tail;
+
+            char[] chars = Chars.toArray(edge.keySet());
+            Arrays.sort(chars);
+            for (char c : chars) {
+                order[tail] = edge.get(c);
+                labels[tail] = c;
+                parents[tail] = head;
+                depths[tail] = depths[head] + 1;
+                if (head == ROOT) {
+                    roots[c] = tail;
+                }
+                tail++;
+            }
+        }
+        childs[count] = count;
+
+        // 子节点的编号总是大于父节点，逆序累加即可得到子树中的分类
+        for (int node = count - 1; node > ROOT; node--) {
+            reaches[node] |= masks[node];
+            reaches[parents[node]] |= reaches[node];
+        }
+
+        // 父节点的编号总是小于子节点，按编号顺序计算失败指针即为按层次计算
+        for (int node = 1; node < count; node++) {
+            int parent = parents[node];
+            if (parent == ROOT) {
+                continue;
+            }
+
+            int f = fail[parent];
+            int target = child(f, labels[node]);
+            while (target < 0 && f != ROOT) {
+                f = fail[f];
+                target = child(f, labels[node]);
+            }
+            fail[node] = (target < 0) ? ROOT : target;
+            outLink[node] = (masks[fail[node]] != 0) ? fail[node] : outLink[fail[node]];
+        }
+    }
+
+    private int child(int node, char c) {
+        if (node == ROOT) {
+            int target = roots[c];
+            return (target == ROOT) ? -1 : target;
+        }
+
+        int low = childs[node];
+        int high = childs[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 扫描被匹配内容，逐个回调命中的词语
+     * <p>
+     * 部分匹配时，每个分类独立按 DFA 的语义处理，见 {@link #prefixScan(String, Callback)}。
+     *
+     * @param partMatch 是否部分匹配
+     * @param content   被匹配内容
+     * @param callback  回调接口
+     * @return 是否被回调中止
+     */
+    public boolean scan(boolean partMatch, String content, Callback callback) {
+        if (StringUtils.isBlank(content)) {
+            return false;
+        }
+
+        if (partMatch) {
+            return prefixScan(content, callback);
+        }
+
+        // 词语已去除首尾空白，不会从空白字符开始或结束，直接在原内容上匹配
+        int node = ROOT;
+        for (int index = 0; index < content.length(); index++) {
+            char wordChar = content.charAt(index);
+
+            int next = child(node, wordChar);
+            while (next < 0 && node != ROOT) {
+                node = fail[node];
+                next = child(node, wordChar);
+            }
+            node = (next < 0) ? ROOT : next;
+
+            // 当前节点即为最长的命中词，输出指针链上依次为更短的命中词
+            int hit = (masks[node] != 0) ? node : outLink[node];
+            while (hit != ROOT) {
+                int start = index - depths[hit] + 1;
+
+                long mask = masks[hit];
+                while (mask != 0) {
+                    int k = Long.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+
+                    if (callback.call(k, start, index + 1)) {
+                        return true;
+                    }
+                }
+                hit = outLink[hit];
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 部分匹配，每个分类的结果与该分类单独使用 DFA 算法部分匹配一致：
+     * 从开始位置沿该分类的 tire 树向下查找最短的词语，然后跳过本次查找经过的字符和其后的一个字符。
+     * 所有分类在合并的 tire 树上一起向下查找，某个分类命中或不再经过当前节点时结束该分类的查找。
+     */
+    private boolean prefixScan(String content, Callback callback) {
+        // 分类编号 -> 可接受的最小开始位置
+        int[] resume = new int[categories.length];
+        int end = content.length();
+
+        for (int index = 0; index < end; index++) {
+            int node = roots[content.charAt(index)];
+            if (node == ROOT) {
+                continue;
+            }
+
+            long alive = 0;
+            for (int k = 0; k < categories.length; k++) {
+                if (resume[k] <= index) {
+                    alive |= 1L << k;
+                }
+            }
+            alive &= reaches[node];
+
+            int charCount = 1;
+            for (int i = index + 1; i < end && alive != 0; i++) {
+                int next = child(node, content.charAt(i));
+                long stopped = (next < 0) ? alive : alive & ~reaches[next];
+                skip(resume, stopped, index + charCount + 1);
+                alive &= ~stopped;
+                if (alive == 0) {
+                    break;
+                }
+
+                node = next;
+                charCount++;
+
+                long hits = masks[node] & alive;
+                while (hits != 0) {
+                    int k = Long.numberOfTrailingZeros(hits);
+                    hits &= hits - 1;
+                    if (callback.call(k, index, index + charCount)) {
+                        return true;
+                    }
+                }
+                skip(resume, masks[node] & alive, index + charCount + 1);
+                alive &= ~masks[node];
+            }
+            // 查找到内容末尾仍未结束的分类
+            skip(resume, alive, index + charCount + 1);
+        }
+
+        return false;
+    }
+
+    private static void skip(int[] resume, long categoryMask, int position) {
+        while (categoryMask != 0) {
+            resume[Long.numberOfTrailingZeros(categoryMask)] = position;
+            categoryMask &= categoryMask - 1;
+        }
+    }
+
+    public int getCategoryCount() {
+        return categories.length;
+    }
+
+    public String getCategory(int index) {
+        return categories[index];
+    }
+
+    public int getNodeCount() {
+        return labels.length;
+    }
+
+    /**
+     * 匹配到敏感词的回调接口
+     */
+    public interface Callback {
+
+        /**
+         * 匹配到敏感词回调
+         *
+         * @param category 分类编号，即构建时的分类顺序
+         * @param start    词语在被匹配内容中的开始位置
+         * @param end      词语结束位置（不含）
+         * @return true 立即停止后续任务并返回，false 继续执行
+         */
+        boolean call(int category, int start, int end);
+    }
+}
@@ -0,0 +1,53 @@
+package com.cnblogs.hoojo.sensitivewords.filter.bucket;
+
+import com.cnblogs.hoojo.sensitivewords.filter.WordHashTable;
+
+/**
+ * hash bucket 缓存节点
+ * <p>
+ * 每个首字符对应一个 long 长度掩码，第 (length - 1) 位表示存在以该字符开头、长度为 length 的敏感词，
+ * 长度超过 {@link #MAX_MASK_LENGTH} 的词语统一记录在最高位。掩码按 256 个字符分页，只分配词库实际用到的页。
+ */
+public class HashBucketCacheNode {
+
+    public static final int MAX_MASK_LENGTH = Long.SIZE;
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    // 首字符 -> 长度掩码，按高8位分页
+    private final long[][] lengthMasks = new long[(Character.MAX_VALUE + 1) >>> PAGE_BITS][];
+
+    // 敏感词指纹表
+    private final WordHashTable words = new WordHashTable();
+
+    // 脏词中长度最大词的length
+    private int maxWordLength = 0;
+
+    public void addLength(char firstChar, int length) {
+        long[] page = lengthMasks[firstChar >>> PAGE_BITS];
+        if (page == null) {
+            page = new long[PAGE_MASK + 1];
+            lengthMasks[firstChar >>> PAGE_BITS] = page;
+        }
+        page[firstChar & PAGE_MASK] |= 1L << (Math.min(length, MAX_MASK_LENGTH) - 1);
+
+        maxWordLength = Math.max(maxWordLength, length);
+    }
+
+    /**
+     * 以指定字符开头的敏感词长度掩码
+     */
+    public long getLengthMask(char firstChar) {
+        long[] page = lengthMasks[firstChar >>> PAGE_BITS];
+        return (page == null) ? 0L : page[firstChar & PAGE_MASK];
+    }
+
+    public WordHashTable getWords() {
+        return words;
+    }
+
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+}
@@ -2,30 +2,28 @@ package com.cnblogs.hoojo.sensitivewords.filter.bucket;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
-import com.google.common.collect.Maps;
+import com.cnblogs.hoojo.sensitivewords.filter.WordHashTable;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
 /**
  * hash bucket 脱敏过滤算法实现
+ * <p>
+ * 按首字符的长度掩码确定候选长度，从候选位置开始逐字符滚动计算指纹，只在掩码命中的长度上查询指纹表，
+ * 确认命中后才返回词语，匹配过程不截取子串。
  */
-public final class HashBucketFilter extends BaseWordsFilter<Map<Character, Map<Integer, Set<String>>>> {
+public final class HashBucketFilter extends BaseWordsFilter<HashBucketCacheNode> {
 
     public HashBucketFilter(WordsCategory wordSet) {
         super(wordSet);
     }
 
     @Override
-    protected Map<Character, Map<Integer, Set<String>>> createState() {
-        return new HashMap<>();
+    protected HashBucketCacheNode createState() {
+        return new HashBucketCacheNode();
     }
 
     @Override
-    protected boolean putOneWord(Map<Character, Map<Integer, Set<String>>> state, String word) throws RuntimeException {
+    protected boolean putOneWord(HashBucketCacheNode state, String word) throws RuntimeException {
 
         if (StringUtils.isBlank(word)) {
             return false;
@@ -36,63 +34,47 @@ public final class HashBucketFilter extends BaseWordsFilter<Map<Character, Map<I
             return false;
         }
 
-
-        char firstChar = word.charAt(0);
-
-        Map<Integer, Set<String>> buckets = state.get(firstChar);
-        if (buckets == null) {
-            buckets = Maps.newHashMap();
-            state.put(firstChar, buckets);
-        }
-
-        Set<String> words = buckets.get(word.length());
-        if (words == null) {
-            words = new HashSet<String>();
-            buckets.put(word.length(), words);
-        }
-        words.add(word);
+        state.addLength(word.charAt(0), word.length());
+        state.getWords().put(word);
 
         return true;
     }
 
     @Override
-    protected boolean processor(boolean partMatch, String content, Callback callback) throws RuntimeException {
-
-        if (StringUtils.isBlank(content)) {
-            return false;
-        }
-
-        content = StringUtils.trim(content);
-        if (content.length() < 2) {
-            return false;
-        }
-
-        for (int i = 0; i < content.length(); i++) {
-            Character wordChar = content.charAt(i);
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        HashBucketCacheNode state = getState();
+        WordHashTable words = state.getWords();
+        for (int i = start; i < end; i++) {
+            char wordChar = content.charAt(i);
 
             // 判断是否属于脏字符
-            if (!getState().containsKey(wordChar)) {
+            long lengthMask = state.getLengthMask(wordChar);
+            if (lengthMask == 0) {
                 continue;
             }
 
-            Map<Integer, Set<String>> buckets = getState().get(wordChar);
-            Set<Integer> sizes = buckets.keySet();
-            for (int size : sizes) {
+            int maxLength = (lengthMask < 0) ? state.getMaxWordLength() : Long.SIZE - Long.numberOfLeadingZeros(lengthMask);
+            int limit = Math.min(end, i + maxLength);
 
-                if (i + size > content.length()) {
+            long hash = WordHashTable.next(0, wordChar);
+            for (int j = i + 1; j < limit; j++) {
+                hash = WordHashTable.next(hash, content.charAt(j));
+
+                int length = j - i + 1;
+                if ((lengthMask & (1L << (Math.min(length, HashBucketCacheNode.MAX_MASK_LENGTH) - 1))) == 0) {
                     continue;
                 }
 
-                String word = content.substring(i, i + size);
-                Set<String> words = buckets.get(size);
                 // 判断是否是脏词
-                if (words.contains(word)) {
-                    if (callback.call(word)) {
+                int id = words.find(content, i, j + 1, hash);
+                if (id >= 0) {
+                    if (callback.call(i, j + 1, id)) {
                         return true;
                     }
 
                     if (partMatch) {
-                        i += word.length();
+                        i = j;
+                        break;
                     }
                 }
             }
@@ -100,4 +82,28 @@ public final class HashBucketFilter extends BaseWordsFilter<Map<Character, Map<I
 
         return false;
     }
+
+    /**
+     * 词语编号即词语在指纹表中的编号
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        return getState().getWords().find(content, start, end, WordHashTable.hash(content, start, end));
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        WordHashTable words = getState().getWords();
+        return (wordId >= 0 && wordId < words.size()) ? words.getWord(wordId) : null;
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getWords().size();
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getWords().size();
+    }
 }
@@ -0,0 +1,137 @@
+package com.cnblogs.hoojo.sensitivewords.filter.daac;
+
+import com.google.common.collect.Sets;
+
+import java.nio.IntBuffer;
+import java.util.TreeSet;
+
+/**
+ * 双数组 Aho-Corasick 自动机缓存节点
+ * <p>
+ * 状态即双数组中的节点位置，fail/output/outLink 与 base/check 数组按节点位置一一对应。
+ * 数组保存在 {@link IntBuffer} 中，可以是堆内数组，也可以直接是快照文件的映射内存。
+ */
+public class DaacCacheNode {
+
+    //敏感词库，按字符编码排序，仅在构建自动机时使用
+    private TreeSet<String> words = Sets.newTreeSet();
+
+    //双数组：base[p] + c + 1 为字符 c 的转移位置，check 保存转移来源的 base 值
+    private IntBuffer base;
+    private IntBuffer check;
+
+    //失败指针：节点位置 -> 最长真后缀所在节点位置
+    private IntBuffer fail;
+
+    //输出表：节点位置 -> 在该节点结束的敏感词长度，0表示不是词语结尾
+    private IntBuffer output;
+
+    //输出指针：节点位置 -> 沿失败指针找到的第一个词语结尾节点，0表示没有
+    private IntBuffer outLink;
+
+    //词语编号 -> 词语，按字符编码排序，只保存关键字分类中词语的引用
+    private String[] wordList = new String[0];
+
+    /**
+     * 从指定节点按字符转移到子节点，与 DoubleArrayTrie2#transition 一致
+     *
+     * @return 子节点位置，不存在时返回-1
+     */
+    public int transition(int node, char c) {
+        int b = base.get(node);
+        int p = b + c + 1;
+        if (p < base.limit() && b == check.get(p)) {
+            return p;
+        }
+        return -1;
+    }
+
+    /**
+     * 词语在构建列表（按字符编码排序）中的编号，与 DoubleArrayTrie2#valueOf 一致：词语结尾节点的 0 号转移上保存 -编号-1
+     *
+     * @return 词语编号，不是词语时返回-1
+     */
+    public int index(CharSequence content, int start, int end) {
+        if (isEmpty()) {
+            return -1;
+        }
+
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            node = transition(node, content.charAt(i));
+            if (node < 0) {
+                return -1;
+            }
+        }
+
+        int b = base.get(node);
+        if (b >= 0 && b < base.limit() && b == check.get(b) && base.get(b) < 0) {
+            return -base.get(b) - 1;
+        }
+        return -1;
+    }
+
+    public boolean isEmpty() {
+        return base == null;
+    }
+
+    public TreeSet<String> getWords() {
+        return words;
+    }
+
+    public void setWords(TreeSet<String> words) {
+        this.words = words;
+    }
+
+    public IntBuffer getBase() {
+        return base;
+    }
+
+    public void setBase(IntBuffer base) {
+        this.base = base;
+    }
+
+    public IntBuffer getCheck() {
+        return check;
+    }
+
+    public void setCheck(IntBuffer check) {
+        this.check = check;
+    }
+
+    public IntBuffer getFail() {
+        return fail;
+    }
+
+    public void setFail(IntBuffer fail) {
+        this.fail = fail;
+    }
+
+    public IntBuffer getOutput() {
+        return output;
+    }
+
+    public void setOutput(IntBuffer output) {
+        this.output = output;
+    }
+
+    public IntBuffer getOutLink() {
+        return outLink;
+    }
+
+    public void setOutLink(IntBuffer outLink) {
+        this.outLink = outLink;
+    }
+
+    public String[] getWordList() {
+        return wordList;
+    }
+
+    public void setWordList(String[] wordList) {
+        this.wordList = wordList;
+    }
+
+    public int getWordCount() {
+        return wordList.length;
+    }
+}
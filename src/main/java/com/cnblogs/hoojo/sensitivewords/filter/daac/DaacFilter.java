@@ -0,0 +1,277 @@
+package com.cnblogs.hoojo.sensitivewords.filter.daac;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterOptions;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterSnapshot;
+import com.cnblogs.hoojo.sensitivewords.filter.dat.DoubleArrayTrie2;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 双数组 Aho-Corasick (DAAC) 算法脱敏实现
+ * <p>
+ * 在 {@link DoubleArrayTrie2} 的 base/check 数组之上增加并行的 fail 数组和输出表，
+ * 自动机的全部状态都保存在基本类型数组中，被匹配内容从左到右扫描一遍即可找出全部敏感词。
+ * 部分匹配与 DFA 算法相同，只使用双数组的转移（见 {@link #prefixMatch}）。
+ * <p>
+ * 支持保存为 {@link FilterSnapshot}，从快照恢复时直接在映射的文件内容上匹配，不需要重新构建自动机。
+ * 使用 {@link FilterOptions#withOffHeap()} 时自动机数组保存在直接内存中。
+ */
+public final class DaacFilter extends BaseWordsFilter<DaacCacheNode> {
+
+    private static final int ROOT = 0;
+
+    public DaacFilter(WordsCategory wordSet) {
+        super(wordSet);
+    }
+
+    /**
+     * @param options 过滤器选项，支持堆外存储，不支持跳过干扰字符
+     */
+    public DaacFilter(WordsCategory wordSet, FilterOptions options) {
+        super(wordSet, checkOptions(options));
+    }
+
+    /**
+     * 从快照恢复过滤器
+     */
+    public DaacFilter(FilterSnapshot snapshot) {
+        super(snapshot);
+    }
+
+    private static FilterOptions checkOptions(FilterOptions options) {
+        if (options.isSkipNoise()) {
+            throw new IllegalArgumentException("DAAC算法不支持跳过干扰字符");
+        }
+        return options;
+    }
+
+    @Override
+    protected DaacCacheNode createState() {
+        return new DaacCacheNode();
+    }
+
+    @Override
+    protected boolean putOneWord(DaacCacheNode state, String word) throws RuntimeException {
+        if (StringUtils.isBlank(word)) {
+            return false;
+        }
+
+        word = StringUtils.trim(word);
+        if (word.length() < 2) {
+            return false;
+        }
+
+        return state.getWords().add(word);
+    }
+
+    @Override
+    protected void loadCompete(WordsCategory wordSet, DaacCacheNode state) {
+        if (state.getWords().isEmpty()) {
+            return;
+        }
+
+        List<String> words = Lists.newArrayList(state.getWords());
+        DoubleArrayTrie2 trie = new DoubleArrayTrie2();
+        int error = trie.build(words);
+        if (error < 0) {
+            throw new IllegalStateException(String.format("构建双数组失败：%s, error=%s", wordSet.getCategory(), error));
+        }
+
+        int size = trie.getSize();
+        int[] fail = new int[size];
+        int[] output = new int[size];
+        int[] outLink = new int[size];
+        boolean[] visited = new boolean[size];
+
+        // 记录每个词语路径上的节点位置，用于按层次遍历双数组
+        int maxLength = 0;
+        int[][] paths = new int[words.size()][];
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            int[] path = new int[word.length()];
+
+            int node = ROOT;
+            for (int j = 0; j < word.length(); j++) {
+                node = trie.transition(node, word.charAt(j));
+                path[j] = node;
+            }
+            output[node] = word.length();
+
+            paths[i] = path;
+            maxLength = Math.max(maxLength, word.length());
+        }
+
+        // 第 depth 层节点的失败指针只依赖更浅层的节点，逐层计算等价于广度优先遍历
+        for (int depth = 0; depth < maxLength; depth++) {
+            for (int i = 0; i < words.size(); i++) {
+                int[] path = paths[i];
+                if (path.length <= depth || visited[path[depth]]) {
+                    continue;
+                }
+
+                int node = path[depth];
+                visited[node] = true;
+                if (depth == 0) {
+                    fail[node] = ROOT;
+                    continue;
+                }
+
+                char c = words.get(i).charAt(depth);
+                int f = fail[path[depth - 1]];
+                int target = trie.transition(f, c);
+                while (target < 0 && f != ROOT) {
+                    f = fail[f];
+                    target = trie.transition(f, c);
+                }
+                fail[node] = (target < 0) ? ROOT : target;
+                outLink[node] = (output[fail[node]] > 0) ? fail[node] : outLink[fail[node]];
+            }
+        }
+
+        state.setBase(store(Arrays.copyOf(trie.getBase(), size)));
+        state.setCheck(store(Arrays.copyOf(trie.getCheck(), size)));
+        state.setFail(store(fail));
+        state.setOutput(store(output));
+        state.setOutLink(store(outLink));
+        state.setWordList(words.toArray(new String[0]));
+        state.setWords(null);
+    }
+
+    @Override
+    public boolean isSnapshotSupported() {
+        return true;
+    }
+
+    @Override
+    protected IntBuffer[] saveState(DaacCacheNode state) {
+        if (state.isEmpty()) {
+            return new IntBuffer[0];
+        }
+        return new IntBuffer[]{state.getBase(), state.getCheck(), state.getFail(), state.getOutput(), state.getOutLink()};
+    }
+
+    @Override
+    protected DaacCacheNode restoreState(FilterSnapshot snapshot) {
+        DaacCacheNode state = createState();
+        state.setWords(null);
+        if (snapshot.getSectionCount() == 0) {
+            return state;
+        }
+        if (snapshot.getSectionCount() != 5) {
+            throw new IllegalArgumentException(String.format("DAAC快照分段数错误：%s", snapshot.getSectionCount()));
+        }
+
+        state.setBase(snapshot.getSection(0));
+        state.setCheck(snapshot.getSection(1));
+        state.setFail(snapshot.getSection(2));
+        state.setOutput(snapshot.getSection(3));
+        state.setOutLink(snapshot.getSection(4));
+
+        // 构建时词语按字符编码排序后编号，排序后即为编号顺序
+        String[] wordList = snapshot.getWords().toArray(new String[0]);
+        Arrays.sort(wordList);
+        state.setWordList(wordList);
+        return state;
+    }
+
+    @Override
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        DaacCacheNode state = getState();
+        if (state.isEmpty()) {
+            return false;
+        }
+        if (partMatch) {
+            return prefixMatch(state, content, start, end, callback);
+        }
+        IntBuffer fail = state.getFail();
+        IntBuffer output = state.getOutput();
+        IntBuffer outLink = state.getOutLink();
+
+        int node = ROOT;
+        for (int index = start; index < end; index++) {
+            char wordChar = content.charAt(index);
+
+            int next = state.transition(node, wordChar);
+            while (next < 0 && node != ROOT) {
+                node = fail.get(node);
+                next = state.transition(node, wordChar);
+            }
+            node = (next < 0) ? ROOT : next;
+
+            // 当前节点即为最长的命中词，输出指针链上依次为更短的命中词
+            int hit = (output.get(node) > 0) ? node : outLink.get(node);
+            while (hit != ROOT) {
+                if (callback.call(index - output.get(hit) + 1, index + 1, -1)) {
+                    return true;
+                }
+                hit = outLink.get(hit);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 部分匹配，与 DFA 算法相同：从开始位置向下查找到第一个词语即回调，然后跳过本次查找经过的字符和其后的一个字符。
+     * 词语至少两个字符，经过的节点不会是非词语的叶子节点，不需要单独判断叶子节点
+     */
+    private boolean prefixMatch(DaacCacheNode state, String content, int start, int end, Callback callback) {
+        IntBuffer output = state.getOutput();
+        for (int index = start; index < end; index++) {
+            int node = state.transition(ROOT, content.charAt(index));
+            if (node < 0) {
+                continue;
+            }
+
+            int charCount = 1;
+            for (int i = index + 1; i < end; i++) {
+                node = state.transition(node, content.charAt(i));
+                if (node < 0) {
+                    break;
+                }
+                charCount++;
+
+                if (output.get(node) > 0) {
+                    if (callback.call(index, index + charCount, -1)) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+
+            index += charCount;
+        }
+
+        return false;
+    }
+
+    /**
+     * 词语编号由双数组的词语结尾直接给出，不需要另外构建词语表
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        return getState().index(content, start, end);
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        String[] wordList = getState().getWordList();
+        return (wordId >= 0 && wordId < wordList.length) ? wordList[wordId] : null;
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getWordCount();
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getWordCount();
+    }
+}
@@ -2,32 +2,32 @@ package com.cnblogs.hoojo.sensitivewords.filter.dat;
 
 import com.google.common.collect.Sets;
 
-import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * 双数组脏词缓存节点
  */
 public class DatCacheNode {
 
-    //脏字库
-    private Set<Character> chars = Sets.newHashSet();
+    //敏感词库，按字符编码排序，仅在构建双数组时使用
+    private TreeSet<String> words = Sets.newTreeSet();
 
-    //敏感词库
-    private Set<String> words = Sets.newHashSet();
+    //敏感词双数组
+    private DoubleArrayTrie2 trie;
 
-    public Set<Character> getChars() {
-        return chars;
+    public TreeSet<String> getWords() {
+        return words;
     }
 
-    public void setChars(Set<Character> chars) {
-        this.chars = chars;
+    public void setWords(TreeSet<String> words) {
+        this.words = words;
     }
 
-    public Set<String> getWords() {
-        return words;
+    public DoubleArrayTrie2 getTrie() {
+        return trie;
     }
 
-    public void setWords(Set<String> words) {
-        this.words = words;
+    public void setTrie(DoubleArrayTrie2 trie) {
+        this.trie = trie;
     }
 }
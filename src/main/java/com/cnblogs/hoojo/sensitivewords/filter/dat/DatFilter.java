@@ -2,10 +2,14 @@ package com.cnblogs.hoojo.sensitivewords.filter.dat;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * 双数组算法过滤敏感词
+ * <p>
+ * 敏感词在加载完成后编译为 {@link DoubleArrayTrie2} 的 base/check 数组，匹配时逐字符在数组上转移，
+ * 不需要截取子串做hash查找。
  */
 public final class DatFilter extends BaseWordsFilter<DatCacheNode> {
 
@@ -29,57 +33,63 @@ public final class DatFilter extends BaseWordsFilter<DatCacheNode> {
             return false;
         }
 
-        state.getWords().add(word);
-
-        for (Character character : word.toCharArray()) {
-            state.getChars().add(character);
-        }
-
-        return true;
+        return state.getWords().add(word);
     }
 
     @Override
-    protected boolean processor(boolean partMatch, String content, Callback callback) throws RuntimeException {
+    protected void loadCompete(WordsCategory wordSet, DatCacheNode state) {
+        if (state.getWords().isEmpty()) {
+            return;
+        }
 
-        if (StringUtils.isBlank(content)) {
-            return false;
+        DoubleArrayTrie2 trie = new DoubleArrayTrie2();
+        int error = trie.build(Lists.newArrayList(state.getWords()));
+        if (error < 0) {
+            throw new IllegalStateException(String.format("构建双数组失败：%s, error=%s", wordSet.getCategory(), error));
         }
 
-        content = StringUtils.trim(content);
-        if (content.length() < 2) {
+        state.setTrie(trie);
+        state.setWords(null);
+    }
+
+    @Override
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        DoubleArrayTrie2 trie = getState().getTrie();
+        if (trie == null) {
             return false;
         }
 
-        for (int i = 0; i < content.length(); i++) {
-            Character wordChar = content.charAt(i);
-            // 判断是否属于脏字符
-            if (!getState().getChars().contains(wordChar)) {
+        for (int i = start; i < end; i++) {
+            // 判断是否属于脏词首字符
+            int node = trie.transition(0, content.charAt(i));
+            if (node < 0) {
                 continue;
             }
 
-            int j = i + 1;
-            while (j < content.length()) {
-
-                // 判断下一个字符是否属于脏字符
-                wordChar = content.charAt(j);
-                if (!getState().getChars().contains(wordChar)) {
+            int charCount = 1;
+            for (int j = i + 1; j < end; j++) {
+                // 判断下一个字符是否能继续转移
+                node = trie.transition(node, content.charAt(j));
+                if (node < 0) {
                     break;
                 }
+                charCount++;
 
-                String word = content.substring(i, j + 1);
                 // 判断是否是脏词
-                if (getState().getWords().contains(word)) {
-
-                    if (callback.call(word)) {
+                if (trie.valueOf(node) >= 0) {
+                    if (callback.call(i, j + 1, -1)) {
                         return true;
                     }
 
                     if (partMatch) {
-                        i += word.length();
+                        break;
                     }
                 }
+            }
 
-                j++;
+            // 部分匹配与 DFA 相同，跳过本次查找经过的字符和其后的一个字符
+            if (partMatch) {
+                i += charCount;
             }
         }
 
@@ -6,14 +6,19 @@ package com.cnblogs.hoojo.sensitivewords.filter.dat;
 
 import com.google.common.collect.Lists;
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class DoubleArrayTrie2 {
 
-    private final static int BUF_SIZE = 16384;
     private final static int UNIT_SIZE = 8; // size of int + int
     // boolean no_delete_;
     int error_;
@@ -85,7 +90,7 @@ public class DoubleArrayTrie2 {
         if (allocSize > 0) {
             System.arraycopy(base, 0, base2, 0, allocSize);
             System.arraycopy(check, 0, check2, 0, allocSize);
-            System.arraycopy(used2, 0, used2, 0, allocSize);
+            System.arraycopy(used, 0, used2, 0, allocSize);
         }
 
         base = base2;
@@ -246,6 +251,20 @@ public class DoubleArrayTrie2 {
         return size;
     }
 
+    /**
+     * base 数组，构建完成后前 {@link #getSize()} 个元素有效
+     */
+    public int[] getBase() {
+        return base;
+    }
+
+    /**
+     * check 数组，构建完成后前 {@link #getSize()} 个元素有效
+     */
+    public int[] getCheck() {
+        return check;
+    }
+
     public int getTotalSize() {
         return size * UNIT_SIZE;
     }
@@ -293,9 +312,24 @@ public class DoubleArrayTrie2 {
         used = null;
         key = null;
 
+        shrink();
+
         return error_;
     }
 
+    /**
+     * 构建完成后释放预分配的空余空间，只保留实际使用的 base/check 数组
+     */
+    private void shrink() {
+        if (error_ < 0 || allocSize <= size) {
+            return;
+        }
+
+        base = Arrays.copyOf(base, size);
+        check = Arrays.copyOf(check, size);
+        allocSize = size;
+    }
+
     public int put(String _key, int[] _length, int[] _value) {
         if (_key == null)
             return 0;
@@ -334,40 +368,76 @@ public class DoubleArrayTrie2 {
         return error_;
     }
 
+    /**
+     * 读取 {@link #save(String)} 保存的 base/check 数组，整个文件映射后批量读取
+     */
     public void open(String fileName) throws IOException {
-        File file = new File(fileName);
-        size = (int) file.length() / UNIT_SIZE;
-        check = new int[size];
-        base = new int[size];
-
-        DataInputStream is = null;
-        try {
-            is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUF_SIZE));
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            size = (int) (channel.size() / UNIT_SIZE);
+            IntBuffer units = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) size * UNIT_SIZE).asIntBuffer();
+
+            int[] all = new int[size * 2];
+            units.get(all);
+
+            base = new int[size];
+            check = new int[size];
             for (int i = 0; i < size; i++) {
-                base[i] = is.readInt();
-                check[i] = is.readInt();
+                base[i] = all[i * 2];
+                check[i] = all[i * 2 + 1];
             }
-        } finally {
-            if (is != null)
-                is.close();
+            allocSize = size;
         }
     }
 
+    /**
+     * 按 base, check 交替的顺序保存数组，整块写入文件
+     */
     public void save(String fileName) throws IOException {
-        DataOutputStream out = null;
-        try {
-            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
-            for (int i = 0; i < size; i++) {
-                out.writeInt(base[i]);
-                out.writeInt(check[i]);
+        ByteBuffer buffer = ByteBuffer.allocate(size * UNIT_SIZE);
+        IntBuffer units = buffer.asIntBuffer();
+        for (int i = 0; i < size; i++) {
+            units.put(base[i]);
+            units.put(check[i]);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
-            out.close();
-        } finally {
-            if (out != null)
-                out.close();
         }
     }
 
+    /**
+     * 从指定节点按字符转移到子节点
+     *
+     * @param nodePos 当前节点位置，根节点为0
+     * @param c       转移字符
+     * @return 子节点位置，不存在时返回-1
+     */
+    public int transition(int nodePos, char c) {
+        int b = base[nodePos];
+        int p = b + (int) c + 1;
+        if (p < size && b == check[p]) {
+            return p;
+        }
+        return -1;
+    }
+
+    /**
+     * 获取节点上结束的词语编号
+     *
+     * @param nodePos 节点位置
+     * @return 词语在构建列表中的下标，节点不是词语结尾时返回-1
+     */
+    public int valueOf(int nodePos) {
+        int b = base[nodePos];
+        if (b >= 0 && b < size && b == check[b] && base[b] < 0) {
+            return -base[b] - 1;
+        }
+        return -1;
+    }
+
     public int exactMatchSearch(String key) {
         return exactMatchSearch(key, 0, 0, 0);
     }
@@ -387,13 +457,15 @@ public class DoubleArrayTrie2 {
 
         for (int i = pos; i < len; i++) {
             p = b + (int) (keyChars[i]) + 1;
-            if (b == check[p])
+            if (p < size && b == check[p])
                 b = base[p];
             else
                 return result;
         }
 
         p = b;
+        if (p >= size)
+            return result;
         int n = base[p];
         if (b == check[p] && n < 0) {
             result = -n - 1;
@@ -428,13 +500,15 @@ public class DoubleArrayTrie2 {
             }
 
             p = b + (int) (keyChars[i]) + 1;
-            if (b == check[p])
+            if (p < size && b == check[p])
                 b = base[p];
             else
                 return result;
         }
 
         p = b;
+        if (p >= size)
+            return result;
         n = base[p];
 
         if (b == check[p] && n < 0) {
@@ -0,0 +1,328 @@
+package com.cnblogs.hoojo.sensitivewords.filter.dawg;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAWG（有向无环词图）状态缓存节点
+ * <p>
+ * 加载时只收集词语，加载完成后按字典序使用 Daciuk 增量算法构建最小化的词图：前缀与 tire tree 相同，
+ * 右语言（后续可接受的字符串集合）相同的状态合并为一个，共同的词尾只保存一份。
+ * <p>
+ * 冻结后状态 s 的转移为 [firsts[s], firsts[s + 1])，按字符排序，使用二分查找。
+ * 每个转移保存 skip：经过该转移之前，在字典序上已跳过的词语数（当前状态为词语结尾时计1，加上更小字符的转移可到达的词语数），
+ * 沿路径累加 skip 即为词语在字典序中的编号（最小完美hash），不需要在状态上保存词语。
+ */
+public class DawgCacheNode {
+
+    private static final int ROOT = 0;
+
+    // 加载阶段的词语，冻结后释放
+    private List<String> words = Lists.newArrayList();
+
+    // 状态编号 -> 第一个转移编号
+    private int[] firsts;
+    // 转移编号 -> 转移字符
+    private char[] labels;
+    // 转移编号 -> 目标状态编号
+    private int[] targets;
+    // 转移编号 -> 经过该转移前跳过的词语数
+    private int[] skips;
+    // 词语结尾的状态编号
+    private BitSet finals;
+    private int wordCount;
+
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * 构建最小化词图，并释放加载的词语
+     */
+    public void freeze() {
+        Collections.sort(words);
+
+        Builder builder = new Builder();
+        String previous = null;
+        for (String word : words) {
+            if (!word.equals(previous)) {
+                builder.add(word);
+                wordCount++;
+            }
+            previous = word;
+        }
+        BuildState root = builder.finish();
+
+        compact(root);
+        words = null;
+    }
+
+    /**
+     * 把构建状态按广度优先顺序编号并展开为数组，同时计算每个转移的 skip
+     */
+    private void compact(BuildState root) {
+        List<BuildState> states = Lists.newArrayList();
+        Map<BuildState, Integer> ids = new IdentityHashMap<>();
+        states.add(root);
+        ids.put(root, ROOT);
+
+        int transitionCount = 0;
+        for (int i = 0; i < states.size(); i++) {
+            BuildState state = states.get(i);
+            transitionCount += state.size;
+            for (int t = 0; t < state.size; t++) {
+                if (!ids.containsKey(state.targets[t])) {
+                    ids.put(state.targets[t], states.size());
+                    states.add(state.targets[t]);
+                }
+            }
+        }
+
+        // 共享的子状态可能排在父状态之后，递归计算每个状态可到达的词语数，每个状态只计算一次
+        int[] counts = new int[states.size()];
+        countWords(root, ids, counts, new BitSet(states.size()));
+
+        firsts = new int[states.size() + 1];
+        labels = new char[transitionCount];
+        targets = new int[transitionCount];
+        skips = new int[transitionCount];
+        finals = new BitSet(states.size());
+
+        int transition = 0;
+        for (int i = 0; i < states.size(); i++) {
+            BuildState state = states.get(i);
+            firsts[i] = transition;
+            if (state.isFinal) {
+                finals.set(i);
+            }
+
+            int skip = state.isFinal ? 1 : 0;
+            for (int t = 0; t < state.size; t++) {
+                int target = ids.get(state.targets[t]);
+                labels[transition] = state.labels[t];
+                targets[transition] = target;
+                skips[transition] = skip;
+                skip += counts[target];
+                transition++;
+            }
+        }
+        firsts[states.size()] = transition;
+    }
+
+    private static int countWords(BuildState state, Map<BuildState, Integer> ids, int[] counts, BitSet counted) {
+        int id = ids.get(state);
+        if (counted.get(id)) {
+            return counts[id];
+        }
+
+        int count = state.isFinal ? 1 : 0;
+        for (int t = 0; t < state.size; t++) {
+            count += countWords(state.targets[t], ids, counts, counted);
+        }
+        counts[id] = count;
+        counted.set(id);
+        return count;
+    }
+
+    /**
+     * 转移查找，在排序的转移字符上二分查找
+     *
+     * @return 目标状态编号，不存在时返回-1
+     */
+    public int child(int state, char c) {
+        int transition = transition(state, c);
+        return (transition < 0) ? -1 : targets[transition];
+    }
+
+    private int transition(int state, char c) {
+        int low = firsts[state];
+        int high = firsts[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 词语在字典序中的编号
+     *
+     * @return 词语编号，不是词语时返回-1
+     */
+    public int index(CharSequence content, int start, int end) {
+        int state = ROOT;
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            int transition = transition(state, content.charAt(i));
+            if (transition < 0) {
+                return -1;
+            }
+            index += skips[transition];
+            state = targets[transition];
+        }
+        return finals.get(state) ? index : -1;
+    }
+
+    /**
+     * 按编号还原词语，与 {@link #index(CharSequence, int, int)} 互逆
+     */
+    public String word(int index) {
+        if (index < 0 || index >= wordCount) {
+            throw new IndexOutOfBoundsException(String.format("词语编号超出范围：%s, %s", index, wordCount));
+        }
+
+        StringBuilder word = new StringBuilder();
+        int state = ROOT;
+        while (index > 0 || !finals.get(state)) {
+            // skip 按字符递增，取 skip 不超过剩余编号的最后一个转移
+            int low = firsts[state];
+            int high = firsts[state + 1] - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (skips[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            word.append(labels[low]);
+            index -= skips[low];
+            state = targets[low];
+        }
+        return word.toString();
+    }
+
+    public int getRoot() {
+        return ROOT;
+    }
+
+    public boolean isWord(int state) {
+        return finals.get(state);
+    }
+
+    public boolean isLeaf(int state) {
+        return firsts[state] == firsts[state + 1];
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public int getNodeCount() {
+        return firsts == null ? 0 : firsts.length - 1;
+    }
+
+    public int getTransitionCount() {
+        return labels == null ? 0 : labels.length;
+    }
+
+    /**
+     * 构建阶段的状态，转移按添加顺序即字符顺序排列
+     */
+    private static final class BuildState {
+        private char[] labels = new char[1];
+        private BuildState[] targets = new BuildState[1];
+        private int size;
+        private boolean isFinal;
+        // 登记后的编号，用于计算等价签名
+        private int id = -1;
+
+        private BuildState last() {
+            return targets[size - 1];
+        }
+
+        private void add(char label, BuildState target) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            labels[size] = label;
+            targets[size] = target;
+            size++;
+        }
+
+        /**
+         * 等价签名：结尾标记和全部转移（字符、已登记的目标编号），签名相同的状态右语言相同
+         */
+        private String signature() {
+            StringBuilder signature = new StringBuilder(1 + size * 3);
+            signature.append(isFinal ? '1' : '0');
+            for (int t = 0; t < size; t++) {
+                int target = targets[t].id;
+                signature.append(labels[t]).append((char) (target >>> 16)).append((char) target);
+            }
+            return signature.toString();
+        }
+    }
+
+    /**
+     * Daciuk 增量构建：词语按字典序加入，上一个词语中与新词语不共享的后缀路径不会再被修改，
+     * 此时从深到浅逐个与已登记的等价状态合并，构建过程中始终保持除当前路径外的部分最小。
+     */
+    private static final class Builder {
+        private final BuildState root = new BuildState();
+        // 等价签名 -> 已登记的状态
+        private final Map<String, BuildState> register = Maps.newHashMap();
+
+        private void add(String word) {
+            int prefix = 0;
+            BuildState state = root;
+            while (prefix < word.length() && state.size > 0 && state.labels[state.size - 1] == word.charAt(prefix)) {
+                state = state.last();
+                prefix++;
+            }
+
+            if (state.size > 0) {
+                replaceOrRegister(state);
+            }
+
+            for (int i = prefix; i < word.length(); i++) {
+                BuildState next = new BuildState();
+                state.add(word.charAt(i), next);
+                state = next;
+            }
+            state.isFinal = true;
+        }
+
+        private void replaceOrRegister(BuildState state) {
+            // 只有最后一个转移所在的路径未登记，路径长度即词语长度，递归深度有限
+            BuildState child = state.last();
+            if (child.size > 0 && child.id < 0) {
+                replaceOrRegister(child);
+            }
+            if (child.id >= 0) {
+                return;
+            }
+
+            String signature = child.signature();
+            BuildState existing = register.get(signature);
+            if (existing != null) {
+                state.targets[state.size - 1] = existing;
+            } else {
+                child.id = register.size();
+                register.put(signature, child);
+            }
+        }
+
+        private BuildState finish() {
+            if (root.size > 0) {
+                replaceOrRegister(root);
+            }
+            return root;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cnblogs.hoojo.sensitivewords.filter.dawg;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * DAWG（最小化有向无环词图）算法脱敏实现
+ * <p>
+ * 匹配方式与 tire tree 相同，但共同的词尾（如 …功、…党、…枪）只保存一份，大词库下状态数和内存明显少于 tire tree（见 {@link DawgCacheNode}）。
+ * 词语编号为词语在字典序中的位置，由词图路径直接计算。
+ */
+public final class DawgFilter extends BaseWordsFilter<DawgCacheNode> {
+
+    public DawgFilter(WordsCategory wordSet) {
+        super(wordSet);
+    }
+
+    @Override
+    protected DawgCacheNode createState() {
+        return new DawgCacheNode();
+    }
+
+    @Override
+    protected boolean putOneWord(DawgCacheNode state, String word) throws RuntimeException {
+        if (StringUtils.isBlank(word)) {
+            return false;
+        }
+
+        word = StringUtils.trim(word);
+        if (word.length() < 2) {
+            return false;
+        }
+
+        // 最小化需要按字典序加入词语，加载完成后统一构建
+        state.getWords().add(word);
+        return true;
+    }
+
+    @Override
+    protected void loadCompete(WordsCategory wordSet, DawgCacheNode state) {
+        state.freeze();
+    }
+
+    @Override
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        DawgCacheNode state = getState();
+        for (int index = start; index < end; index++) {
+            int node = state.child(state.getRoot(), content.charAt(index));
+            if (node < 0 || state.isLeaf(node)) {
+                continue;
+            }
+
+            int charCount = 1;
+            for (int i = index + 1; i < end; i++) {
+                node = state.child(node, content.charAt(i));
+                if (node < 0) {
+                    break;
+                }
+                charCount++;
+
+                if (state.isWord(node)) {
+                    if (callback.call(index, index + charCount, -1)) {
+                        return true;
+                    }
+                    if (partMatch) {
+                        break;
+                    }
+                }
+
+                if (state.isLeaf(node)) {
+                    break;
+                }
+            }
+
+            if (partMatch) {
+                index += charCount;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 已加载的词语使用词图计算的字典序编号
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        return getState().index(content, start, end);
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        DawgCacheNode state = getState();
+        return (wordId >= 0 && wordId < state.getWordCount()) ? state.word(wordId) : null;
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getWordCount();
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getWordCount();
+    }
+}
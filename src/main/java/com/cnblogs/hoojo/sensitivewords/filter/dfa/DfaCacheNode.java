@@ -0,0 +1,181 @@
+package com.cnblogs.hoojo.sensitivewords.filter.dfa;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DFA 状态缓存节点
+ * <p>
+ * 加载词语时使用 {@link DfaNode} 多叉树，加载完成后编译为按层次排列的基本类型数组：
+ * 节点编号按广度优先顺序分配，同一节点的子节点编号连续且按字符排序，
+ * 节点 n 的子节点为 [childs[n], childs[n + 1])，根节点的子节点另外使用 65536 长度的索引表直接定位。
+ * 词语结尾的节点编号即词语编号，沿父节点可以还原词语。
+ */
+public class DfaCacheNode {
+
+    private static final int ROOT = 0;
+
+    // 加载阶段的多叉树，编译完成后释放
+    private HashMap<Character, DfaNode> tree = Maps.newHashMap();
+
+    // 首字符 -> 节点编号，0表示不存在
+    private int[] roots;
+    // 节点编号 -> 节点字符
+    private char[] labels;
+    // 节点编号 -> 第一个子节点编号
+    private int[] childs;
+    // 节点编号 -> 父节点编号
+    private int[] parents;
+    // 节点编号 -> 是否是敏感词结尾
+    private boolean[] words;
+    private int wordCount;
+
+    public HashMap<Character, DfaNode> getTree() {
+        return tree;
+    }
+
+    /**
+     * 把多叉树编译为基本类型数组，并释放多叉树
+     */
+    public void compile() {
+        // 按广度优先顺序展开节点，处理第 i 个节点时把它的子节点追加到末尾
+        List<DfaNode> nodes = Lists.newArrayList();
+        nodes.add(null);
+
+        List<Integer> starts = Lists.newArrayList();
+        starts.add(appendChilds(nodes, tree));
+        for (int i = 1; i < nodes.size(); i++) {
+            starts.add(appendChilds(nodes, nodes.get(i).getChilds()));
+        }
+
+        int count = nodes.size();
+        roots = new int[Character.MAX_VALUE + 1];
+        labels = new char[count];
+        childs = new int[count + 1];
+        parents = new int[count];
+        words = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            childs[i] = starts.get(i);
+            if (i > ROOT) {
+                DfaNode node = nodes.get(i);
+                labels[i] = node.getChar();
+                words[i] = node.isWord();
+                wordCount += words[i] ? 1 : 0;
+            }
+        }
+        childs[count] = count;
+
+        for (int i = 0; i < count; i++) {
+            for (int child = childs[i]; child < childs[i + 1]; child++) {
+                parents[child] = i;
+            }
+        }
+
+        for (int i = childs[ROOT]; i < childs[ROOT + 1]; i++) {
+            roots[labels[i]] = i;
+        }
+
+        tree = null;
+    }
+
+    private static int appendChilds(List<DfaNode> nodes, Map<Character, DfaNode> childMap) {
+        int start = nodes.size();
+        if (childMap != null && !childMap.isEmpty()) {
+            DfaNode[] sorted = childMap.values().toArray(new DfaNode[0]);
+            Arrays.sort(sorted, (a, b) -> Character.compare(a.getChar(), b.getChar()));
+            nodes.addAll(Arrays.asList(sorted));
+        }
+        return start;
+    }
+
+    /**
+     * 首字符对应的节点
+     *
+     * @return 节点编号，不存在时返回0
+     */
+    public int root(char c) {
+        return roots[c];
+    }
+
+    /**
+     * 子节点查找，子节点按字符排序，使用二分查找
+     *
+     * @return 子节点编号，不存在时返回-1
+     */
+    public int child(int node, char c) {
+        int low = childs[node];
+        int high = childs[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isWord(int node) {
+        return words[node];
+    }
+
+    /**
+     * 词语结尾的节点编号
+     *
+     * @return 节点编号，不是词语时返回-1
+     */
+    public int index(CharSequence content, int start, int end) {
+        if (start >= end || roots == null) {
+            return -1;
+        }
+
+        int node = roots[content.charAt(start)];
+        for (int i = start + 1; i < end && node > ROOT; i++) {
+            node = child(node, content.charAt(i));
+        }
+        return (node > ROOT && words[node]) ? node : -1;
+    }
+
+    /**
+     * 沿父节点还原词语，与 {@link #index(CharSequence, int, int)} 互逆
+     *
+     * @return 词语，节点不是词语结尾时返回null
+     */
+    public String word(int node) {
+        if (node <= ROOT || node >= words.length || !words[node]) {
+            return null;
+        }
+
+        int length = 0;
+        for (int n = node; n > ROOT; n = parents[n]) {
+            length++;
+        }
+        char[] word = new char[length];
+        for (int n = node; n > ROOT; n = parents[n]) {
+            word[--length] = labels[n];
+        }
+        return new String(word);
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public boolean isLeaf(int node) {
+        return childs[node] == childs[node + 1];
+    }
+
+    public int getNodeCount() {
+        return labels == null ? 0 : labels.length;
+    }
+}
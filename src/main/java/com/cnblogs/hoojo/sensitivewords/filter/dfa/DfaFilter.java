@@ -2,22 +2,38 @@ package com.cnblogs.hoojo.sensitivewords.filter.dfa;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
-import com.google.common.collect.Maps;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterOptions;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.HashMap;
 
 /**
  * DFA 脱敏算法实现支持类
+ * <p>
+ * 加载完成后状态编译为基本类型数组（见 {@link DfaCacheNode}），匹配过程不需要装箱，也不访问节点对象。
  */
-public final class DfaFilter extends BaseWordsFilter<HashMap<Character, DfaNode>> {
+public final class DfaFilter extends BaseWordsFilter<DfaCacheNode> {
 
     public DfaFilter(WordsCategory wordSet) {
         super(wordSet);
     }
 
+    /**
+     * @param options 过滤器选项，支持跳过词语字符之间的干扰字符，不支持堆外存储
+     */
+    public DfaFilter(WordsCategory wordSet, FilterOptions options) {
+        super(wordSet, checkOptions(options));
+    }
+
+    private static FilterOptions checkOptions(FilterOptions options) {
+        if (options.isOffHeap()) {
+            throw new IllegalArgumentException("DFA算法不支持堆外存储");
+        }
+        return options;
+    }
+
     @Override
-    protected boolean putOneWord(HashMap<Character, DfaNode> state, String word) throws RuntimeException {
+    protected boolean putOneWord(DfaCacheNode state, String word) throws RuntimeException {
 
         if (StringUtils.isBlank(word)) {
             return false;
@@ -28,11 +44,12 @@ public final class DfaFilter extends BaseWordsFilter<HashMap<Character, DfaNode>
             return false;
         }
 
+        HashMap<Character, DfaNode> tree = state.getTree();
         Character fisrtChar = word.charAt(0);
-        DfaNode node = state.get(fisrtChar);
+        DfaNode node = tree.get(fisrtChar);
         if (node == null) {
             node = new DfaNode(fisrtChar);
-            state.put(fisrtChar, node);
+            tree.put(fisrtChar, node);
         }
 
         for (int i = 1; i < word.length(); i++) {
@@ -58,47 +75,51 @@ public final class DfaFilter extends BaseWordsFilter<HashMap<Character, DfaNode>
     }
 
     @Override
-    protected boolean processor(boolean partMatch, String content, Callback callback) throws RuntimeException {
-        if (StringUtils.isBlank(content)) {
-            return false;
-        }
-
-        content = StringUtils.trim(content);
-        if (content.length() < 2) {
-            return false;
-        }
-
-        for (int index = 0; index < content.length(); index++) {
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        DfaCacheNode state = getState();
+        FilterOptions options = getOptions();
+        int maxGap = options.isSkipNoise() ? options.getMaxGap() : 0;
+        for (int index = start; index < end; index++) {
             char fisrtChar = content.charAt(index);
 
-            DfaNode node = getState().get(fisrtChar);
-            if (node == null || node.isLeaf()) {
+            int node = state.root(fisrtChar);
+            if (node == 0 || state.isLeaf(node)) {
                 continue;
             }
 
             int charCount = 1;
-            for (int i = index + 1; i < content.length(); i++) {
+            int gap = 0;
+            for (int i = index + 1; i < end; i++) {
                 char wordChar = content.charAt(i);
 
-                node = node.getChilds().get(wordChar);
-                if (node != null) {
+                int next = state.child(node, wordChar);
+                if (next < 0 && gap < maxGap && options.isNoise(wordChar)) {
+                    // 跳过词语字符之间的干扰字符，命中位置包括干扰字符
+                    gap++;
+                    charCount++;
+                    continue;
+                }
+
+                node = next;
+                gap = 0;
+                if (node >= 0) {
                     charCount++;
                 } else {
                     break;
                 }
 
-                if (partMatch && node.isWord()) {
-                    if (callback.call(StringUtils.substring(content, index, index + charCount))) {
+                if (partMatch && state.isWord(node)) {
+                    if (callback.call(index, index + charCount, node)) {
                         return true;
                     }
                     break;
-                } else if (node.isWord()) {
-                    if (callback.call(StringUtils.substring(content, index, index + charCount))) {
+                } else if (state.isWord(node)) {
+                    if (callback.call(index, index + charCount, node)) {
                         return true;
                     }
                 }
 
-                if (node.isLeaf()) {
+                if (state.isLeaf(node)) {
                     break;
                 }
             }
@@ -112,8 +133,35 @@ public final class DfaFilter extends BaseWordsFilter<HashMap<Character, DfaNode>
     }
 
     @Override
-    protected HashMap<Character, DfaNode> createState() {
-        return Maps.newHashMap();
+    protected DfaCacheNode createState() {
+        return new DfaCacheNode();
     }
 
+    @Override
+    protected void loadCompete(WordsCategory wordSet, DfaCacheNode state) {
+        state.compile();
+    }
+
+    /**
+     * 词语编号为词语结尾的节点编号，匹配时直接由状态给出，跳过干扰字符的命中同样能得到词语
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        return getState().index(content, start, end);
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        return getState().word(wordId);
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getNodeCount();
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getWordCount();
+    }
 }
@@ -0,0 +1,86 @@
+package com.cnblogs.hoojo.sensitivewords.filter.shiftor;
+
+import com.google.common.collect.Sets;
+
+import java.util.LinkedHashSet;
+
+/**
+ * Shift-Or 位并行状态缓存节点
+ * <p>
+ * 所有敏感词依次排列在若干个 long 字（分组）中，每个词语占用连续的位且不跨越分组，
+ * 第 k 位对应词语中的一个字符位置。字符先映射为紧凑的字母表编号，
+ * masks[symbol * groupCount + group] 的第 k 位为0表示该字符可以出现在第 k 位。
+ */
+public class ShiftOrCacheNode {
+
+    //敏感词库，仅在构建时使用
+    private LinkedHashSet<String> words = Sets.newLinkedHashSet();
+
+    // 字符 -> 字母表编号，0表示不在任何词语中
+    private char[] alphabet;
+    // 字母表编号 x 分组 -> 字符位置掩码
+    private long[] masks;
+    // 分组 -> 词语首字符所在位
+    private long[] starts;
+    // 分组 -> 词语尾字符所在位
+    private long[] ends;
+    // 分组 x 64 + 尾字符位 -> 词语长度
+    private int[] lengths;
+    private int groupCount;
+
+    public LinkedHashSet<String> getWords() {
+        return words;
+    }
+
+    public void setWords(LinkedHashSet<String> words) {
+        this.words = words;
+    }
+
+    public char[] getAlphabet() {
+        return alphabet;
+    }
+
+    public void setAlphabet(char[] alphabet) {
+        this.alphabet = alphabet;
+    }
+
+    public long[] getMasks() {
+        return masks;
+    }
+
+    public void setMasks(long[] masks) {
+        this.masks = masks;
+    }
+
+    public long[] getStarts() {
+        return starts;
+    }
+
+    public void setStarts(long[] starts) {
+        this.starts = starts;
+    }
+
+    public long[] getEnds() {
+        return ends;
+    }
+
+    public void setEnds(long[] ends) {
+        this.ends = ends;
+    }
+
+    public int[] getLengths() {
+        return lengths;
+    }
+
+    public void setLengths(int[] lengths) {
+        this.lengths = lengths;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public void setGroupCount(int groupCount) {
+        this.groupCount = groupCount;
+    }
+}
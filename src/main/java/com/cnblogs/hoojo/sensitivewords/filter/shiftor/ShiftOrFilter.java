@@ -0,0 +1,241 @@
+package com.cnblogs.hoojo.sensitivewords.filter.shiftor;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+
+/**
+ * Shift-Or 位并行多模式匹配算法脱敏实现
+ * <p>
+ * 适用于词语较短、词语数量较少的词库（例如2~6个字的词语列表）：每读入一个字符，
+ * 每个分组只需要一次移位、一次与运算和一次或运算，不需要访问任何树节点。
+ * <p>
+ * 所有词语长度之和不能超过 {@link #MAX_GROUPS} 个 long 字的位数，超出时拒绝创建，应改用 DFA 或 AC 类算法。
+ * 部分匹配与 DFA 算法一致（见 {@link #prefixMatch}）。
+ */
+public final class ShiftOrFilter extends BaseWordsFilter<ShiftOrCacheNode> {
+
+    /**
+     * 最多使用的 long 分组数，即每个字符最多执行的位运算组数
+     */
+    public static final int MAX_GROUPS = 8;
+
+    public ShiftOrFilter(WordsCategory wordSet) {
+        super(wordSet);
+    }
+
+    @Override
+    protected ShiftOrCacheNode createState() {
+        return new ShiftOrCacheNode();
+    }
+
+    @Override
+    protected boolean putOneWord(ShiftOrCacheNode state, String word) throws RuntimeException {
+        if (StringUtils.isBlank(word)) {
+            return false;
+        }
+
+        word = StringUtils.trim(word);
+        if (word.length() < 2) {
+            return false;
+        }
+
+        if (word.length() > Long.SIZE) {
+            throw new IllegalArgumentException(String.format("词语长度超过%s，不能使用Shift-Or算法：%s", Long.SIZE, word));
+        }
+
+        return state.getWords().add(word);
+    }
+
+    @Override
+    protected void loadCompete(WordsCategory wordSet, ShiftOrCacheNode state) {
+        String[] words = state.getWords().toArray(new String[0]);
+
+        // 按顺序把词语排入分组，词语不跨越分组
+        int[] groups = new int[words.length];
+        int[] offsets = new int[words.length];
+        int group = 0;
+        int offset = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (offset + words[i].length() > Long.SIZE) {
+                group++;
+                offset = 0;
+            }
+            groups[i] = group;
+            offsets[i] = offset;
+            offset += words[i].length();
+        }
+
+        int groupCount = (words.length == 0) ? 0 : group + 1;
+        if (groupCount > MAX_GROUPS) {
+            throw new IllegalArgumentException(String.format("词库[%s]总长度超出Shift-Or算法上限：需要%s个分组，最多%s个",
+                    wordSet.getCategory(), groupCount, MAX_GROUPS));
+        }
+
+        char[] alphabet = new char[Character.MAX_VALUE + 1];
+        int symbolCount = 0;
+        for (String word : words) {
+            for (int k = 0; k < word.length(); k++) {
+                if (alphabet[word.charAt(k)] == 0) {
+                    alphabet[word.charAt(k)] = (char) ++symbolCount;
+                }
+            }
+        }
+
+        long[] masks = new long[(symbolCount + 1) * groupCount];
+        Arrays.fill(masks, -1L);
+        long[] starts = new long[groupCount];
+        long[] ends = new long[groupCount];
+        int[] lengths = new int[groupCount * Long.SIZE];
+
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            int g = groups[i];
+            int bit = offsets[i];
+
+            for (int k = 0; k < word.length(); k++) {
+                masks[alphabet[word.charAt(k)] * groupCount + g] &= ~(1L << (bit + k));
+            }
+
+            int last = bit + word.length() - 1;
+            starts[g] |= 1L << bit;
+            ends[g] |= 1L << last;
+            lengths[g * Long.SIZE + last] = word.length();
+        }
+
+        state.setAlphabet(alphabet);
+        state.setMasks(masks);
+        state.setStarts(starts);
+        state.setEnds(ends);
+        state.setLengths(lengths);
+        state.setGroupCount(groupCount);
+        state.setWords(null);
+    }
+
+    @Override
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        ShiftOrCacheNode state = getState();
+        int groupCount = state.getGroupCount();
+        if (groupCount == 0) {
+            return false;
+        }
+
+        if (partMatch) {
+            return prefixMatch(state, content, start, end, callback);
+        }
+
+        char[] alphabet = state.getAlphabet();
+        long[] masks = state.getMasks();
+        long[] starts = state.getStarts();
+        long[] ends = state.getEnds();
+        int[] lengths = state.getLengths();
+
+        // 位为0表示对应的词语前缀与当前位置之前的内容匹配
+        long[] d = new long[groupCount];
+        Arrays.fill(d, -1L);
+        boolean active = false;
+
+        for (int index = start; index < end; index++) {
+            int symbol = alphabet[content.charAt(index)];
+            if (symbol == 0) {
+                // 字符不在任何词语中，所有前缀匹配中断
+                if (active) {
+                    Arrays.fill(d, -1L);
+                    active = false;
+                }
+                continue;
+            }
+
+            int row = symbol * groupCount;
+            active = true;
+            boolean hit = false;
+            for (int g = 0; g < groupCount; g++) {
+                d[g] = ((d[g] << 1) & ~starts[g]) | masks[row + g];
+                hit |= (~d[g] & ends[g]) != 0;
+            }
+            if (!hit) {
+                continue;
+            }
+
+            for (int g = 0; g < groupCount; g++) {
+                long matched = ~d[g] & ends[g];
+                while (matched != 0) {
+                    int length = lengths[g * Long.SIZE + Long.numberOfTrailingZeros(matched)];
+                    if (callback.call(index - length + 1, index + 1, -1)) {
+                        return true;
+                    }
+                    matched &= matched - 1;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 部分匹配，与 DFA 算法相同：从开始位置向下查找到第一个（最短的）词语即回调，然后跳过本次查找经过的字符和其后的一个字符。
+     * 每个开始位置只在第一个字符注入词语开始位，之后不再注入，存活的位即为与当前位置开始的内容匹配的词语前缀，
+     * 等价于 DFA 沿树向下查找；未使用的位在字符掩码中始终为1，不会误判为存活
+     */
+    private boolean prefixMatch(ShiftOrCacheNode state, String content, int start, int end, Callback callback) {
+        int groupCount = state.getGroupCount();
+        char[] alphabet = state.getAlphabet();
+        long[] masks = state.getMasks();
+        long[] starts = state.getStarts();
+        long[] ends = state.getEnds();
+        long[] d = new long[groupCount];
+
+        for (int index = start; index < end; index++) {
+            int symbol = alphabet[content.charAt(index)];
+            if (symbol == 0) {
+                continue;
+            }
+
+            // 字符在词语中出现，但没有以它开始的词语
+            int row = symbol * groupCount;
+            boolean alive = false;
+            for (int g = 0; g < groupCount; g++) {
+                d[g] = ~starts[g] | masks[row + g];
+                alive |= d[g] != -1L;
+            }
+            if (!alive) {
+                continue;
+            }
+
+            int charCount = 1;
+            for (int i = index + 1; i < end; i++) {
+                symbol = alphabet[content.charAt(i)];
+                if (symbol == 0) {
+                    break;
+                }
+
+                row = symbol * groupCount;
+                alive = false;
+                boolean hit = false;
+                for (int g = 0; g < groupCount; g++) {
+                    // 开始位置置1，上一个词语结尾移入的匹配位不会延续到下一个词语
+                    d[g] = (d[g] << 1) | starts[g] | masks[row + g];
+                    alive |= d[g] != -1L;
+                    hit |= (~d[g] & ends[g]) != 0;
+                }
+                if (!alive) {
+                    break;
+                }
+                charCount++;
+
+                if (hit) {
+                    if (callback.call(index, index + charCount, -1)) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+
+            index += charCount;
+        }
+
+        return false;
+    }
+}
@@ -119,6 +119,59 @@ public class Murmur3 {
         return hash64(data, data.length, DEFAULT_SEED);
     }
 
+    /**
+     * Murmur3 64-bit variant over a char range, equal to {@link #hash64(byte[])} of the
+     * UTF-16LE bytes of the range. No intermediate byte array is created.
+     *
+     * @param data  - input chars
+     * @param start - start index, inclusive
+     * @param end   - end index, exclusive
+     * @return - hashcode
+     */
+    public static long hash64(CharSequence data, int start, int end) {
+        long hash = DEFAULT_SEED;
+        final int length = end - start;
+        final int nblocks = length >> 2;
+
+        // body
+        for (int i = 0; i < nblocks; i++) {
+            final int i4 = start + (i << 2);
+            long k = ((long) data.charAt(i4))
+                    | ((long) data.charAt(i4 + 1) << 16)
+                    | ((long) data.charAt(i4 + 2) << 32)
+                    | ((long) data.charAt(i4 + 3) << 48);
+
+            // mix functions
+            k *= C1;
+            k = Long.rotateLeft(k, R1);
+            k *= C2;
+            hash ^= k;
+            hash = Long.rotateLeft(hash, R2) * M + N1;
+        }
+
+        // tail
+        long k1 = 0;
+        int tailStart = start + (nblocks << 2);
+        switch (end - tailStart) {
+            case 3:
+                k1 ^= (long) data.charAt(tailStart + 2) << 32;
+            case 2:
+                k1 ^= (long) data.charAt(tailStart + 1) << 16;
+            case 1:
+                k1 ^= data.charAt(tailStart);
+                k1 *= C1;
+                k1 = Long.rotateLeft(k1, R1);
+                k1 *= C2;
+                hash ^= k1;
+        }
+
+        // finalization
+        hash ^= length << 1;
+        hash = fmix64(hash);
+
+        return hash;
+    }
+
     /**
      * Murmur3 64-bit variant. This is essentially MSB 8 bytes of Murmur3 128-bit variant.
      *
@@ -0,0 +1,118 @@
+package com.cnblogs.hoojo.sensitivewords.filter.simhash;
+
+import com.google.common.primitives.Longs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * simhash 指纹缓存节点
+ * <p>
+ * 64位指纹等分为 {@link SimHashUtils#CHUNK_COUNT} 段，每一段各建立一张置换表：
+ * 表中的指纹按该段的值排序，chunkKeys 保存段值，chunkFingerprints 保存对应的完整指纹。
+ * 汉明距离不超过3的两个指纹至少有一段完全相同，所以只需在每张表中二分查找相同段值的候选指纹，再用popcount比较距离。
+ */
+public class SimHashCacheNode {
+
+    // 脏词首字符
+    private final BitSet firstChars = new BitSet(Character.MAX_VALUE + 1);
+
+    // 指纹，仅在构建置换表时使用
+    private List<Long> fingerprints = new ArrayList<>();
+
+    // 段序号 -> 排序后的段值
+    private int[][] chunkKeys;
+    // 段序号 -> 按段值排序的完整指纹
+    private long[][] chunkFingerprints;
+
+    // 脏词中长度最大词的length
+    private int maxWordLength = 0;
+    // 脏词中长度最小词的length
+    private int minWordLength = Integer.MAX_VALUE;
+
+    public void put(String word) {
+        firstChars.set(word.charAt(0));
+        fingerprints.add(SimHashUtils.simhash(word));
+
+        maxWordLength = Math.max(maxWordLength, word.length());
+        minWordLength = Math.min(minWordLength, word.length());
+    }
+
+    /**
+     * 构建每一段的置换表
+     */
+    public void build() {
+        long[] all = Longs.toArray(fingerprints);
+
+        chunkKeys = new int[SimHashUtils.CHUNK_COUNT][];
+        chunkFingerprints = new long[SimHashUtils.CHUNK_COUNT][];
+        for (int chunk = 0; chunk < SimHashUtils.CHUNK_COUNT; chunk++) {
+            // 把段值循环移位到高位，再翻转符号位按无符号顺序排序，排序结果即按段值有序
+            int shift = Long.SIZE - (chunk + 1) * SimHashUtils.CHUNK_BITS;
+            long[] permuted = new long[all.length];
+            for (int i = 0; i < all.length; i++) {
+                permuted[i] = Long.rotateLeft(all[i], shift) ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(permuted);
+
+            int[] keys = new int[permuted.length];
+            long[] sorted = new long[permuted.length];
+            for (int i = 0; i < permuted.length; i++) {
+                sorted[i] = Long.rotateRight(permuted[i] ^ Long.MIN_VALUE, shift);
+                keys[i] = SimHashUtils.chunk(sorted[i], chunk);
+            }
+            chunkKeys[chunk] = keys;
+            chunkFingerprints[chunk] = sorted;
+        }
+
+        fingerprints = null;
+    }
+
+    /**
+     * 是否存在与指定指纹相似的脏词指纹
+     */
+    public boolean contains(long simhash) {
+        for (int chunk = 0; chunk < SimHashUtils.CHUNK_COUNT; chunk++) {
+            int[] keys = chunkKeys[chunk];
+            long[] candidates = chunkFingerprints[chunk];
+
+            int key = SimHashUtils.chunk(simhash, chunk);
+            int index = lowerBound(keys, key);
+            while (index < keys.length && keys[index] == key) {
+                if (SimHashUtils.similar(simhash, candidates[index])) {
+                    return true;
+                }
+                index++;
+            }
+        }
+        return false;
+    }
+
+    private static int lowerBound(int[] keys, int key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public boolean isFirstChar(char c) {
+        return firstChars.get(c);
+    }
+
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    public int getMinWordLength() {
+        return minWordLength;
+    }
+}
@@ -2,32 +2,31 @@ package com.cnblogs.hoojo.sensitivewords.filter.simhash;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
-import com.google.common.collect.Maps;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.Map;
-import java.util.Set;
-
 /**
  * google simhash 算法实现脱敏过滤
  * <p>
  * 由于simhash是对大文本进行比较，并且比较的是在支持分词的基础上对分词对象进行比较，进而确定相识度。
  * 故 在脱敏方面支持不是很友好，在大文本情况下，效率低下。
  * 改变情况，需要分词库支持。
+ * <p>
+ * 指纹使用 long 保存，汉明距离通过 popcount 计算，候选指纹通过分段置换表查找（见 {@link SimHashCacheNode}）；
+ * 每个起始位置只比较长度在脏词最短和最长长度之间的窗口。
  */
-public final class SimHashFilter extends BaseWordsFilter<Map<Character, Map<String, Set<String>>>> {
+public final class SimHashFilter extends BaseWordsFilter<SimHashCacheNode> {
 
     public SimHashFilter(WordsCategory wordSet) {
         super(wordSet);
     }
 
     @Override
-    protected Map<Character, Map<String, Set<String>>> createState() {
-        return Maps.newHashMap();
+    protected SimHashCacheNode createState() {
+        return new SimHashCacheNode();
     }
 
     @Override
-    protected boolean putOneWord(Map<Character, Map<String, Set<String>>> state, String word) throws RuntimeException {
+    protected boolean putOneWord(SimHashCacheNode state, String word) throws RuntimeException {
 
         if (StringUtils.isBlank(word)) {
             return false;
@@ -38,65 +37,40 @@ public final class SimHashFilter extends BaseWordsFilter<Map<Character, Map<Stri
             return false;
         }
 
-        Character firstChar = word.charAt(0);
-
-        Map<String, Set<String>> hashs = state.get(firstChar);
-        if (hashs == null) {
-            hashs = Maps.newHashMap();
-            state.put(firstChar, hashs);
-        }
-
-        String hash = SimHashUtils._simhash(word);
-        String[] chunks = SimHashUtils.chunk(hash);
-
-        Map<String, Set<String>> map = SimHashUtils.cartesianProduct(chunks);
-        Set<String> keys = map.keySet();
-        for (String chunk : keys) {
-            if (!hashs.containsKey(chunk)) {
-                hashs.put(chunk, map.get(chunk));
-            }
-        }
+        state.put(word);
 
         return true;
     }
 
     @Override
-    protected boolean processor(boolean partMatch, String content, Callback callback) throws RuntimeException {
-
-        if (StringUtils.isBlank(content)) {
-            return false;
-        }
-
-        content = StringUtils.trim(content);
-        if (content.length() < 2) {
-            return false;
-        }
+    protected void loadCompete(WordsCategory wordSet, SimHashCacheNode state) {
+        state.build();
+    }
 
-        for (int i = 0; i < content.length(); i++) {
-            Character wordChar = content.charAt(i);
+    @Override
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        SimHashCacheNode state = getState();
+        for (int i = start; i < end; i++) {
 
             // 判断是否属于脏字符
-            if (!getState().containsKey(wordChar)) {
+            if (!state.isFirstChar(content.charAt(i))) {
                 continue;
             }
 
-            Map<String, Set<String>> hashs = getState().get(wordChar);
-            int j = i + 1;
-            while (j < content.length()) {
-                String word = content.substring(i, j + 1);
+            int limit = Math.min(end, i + state.getMaxWordLength());
+            for (int j = i + state.getMinWordLength(); j <= limit; j++) {
                 // 判断是否是脏词
-                if (SimHashUtils.contains(word, hashs)) {
+                if (state.contains(SimHashUtils.simhash(content, i, j))) {
 
-                    if (callback.call(word)) {
+                    if (callback.call(i, j, -1)) {
                         return true;
                     }
 
                     if (partMatch) {
-                        i += word.length();
+                        i = j - 1;
+                        break;
                     }
                 }
-
-                j++;
             }
         }
 
@@ -1,10 +1,7 @@
 package com.cnblogs.hoojo.sensitivewords.filter.simhash;
 
-import com.google.common.collect.Maps;
-import org.apache.commons.lang3.StringUtils;
-
-import java.math.BigInteger;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * simhash 算法工具类
@@ -56,356 +53,106 @@ import java.util.*;
  */
 public abstract class SimHashUtils {
 
-    private static final int HASH_BITS = FNVHashUtils.HASH_BITS;
+    public static final int HASH_BITS = FNVHashUtils.HASH_BITS;
 
     /**
      * 默认按照4段进行simhash存储
      */
-    private static final int CHUNK_COUNT = 4;
+    public static final int CHUNK_COUNT = 4;
+    /**
+     * 每段的位数
+     */
+    public static final int CHUNK_BITS = HASH_BITS / CHUNK_COUNT;
     /**
      * 汉明距离的衡量标准
      */
-    private static final int HAMMING_THRESH = 3;
-
-    public static Long simhash(Map<String, Integer> words) {
-        //1、分词：直接加入单词、脏词，所以不存在分词
-
-        // 按照词语的hash值，计算simHashWeight(低位对齐)
-        List<Integer[]> mergeWeights = new ArrayList<Integer[]>(words.size());
-
-        Set<String> wordSet = words.keySet();
-        for (String word : wordSet) {
-
-            //2、hash: 计算分词的hash
-            long hash = hash(word);
-
-            // 按照词语的hash值，计算simHashWeight(低位对齐)
-            Integer[] weights = new Integer[HASH_BITS];
-            Arrays.fill(weights, 0);
-
-            //3、加权：即W = Hash * weight，且遇到1则hash值和权值正相乘，遇到0则hash值和权值负相乘
-            for (int i = 0; i < HASH_BITS; i++) {
-                if (((hash >> i) & 1) == 1) {
-                    // 3.1 正负值weight
-                    weights[i] += 1;
-                } else {
-                    weights[i] -= 1;
-                }
-
-                // 3.2 增加权重： W = Hash * weight
-                weights[i] *= words.get(word);
-            }
-
-            mergeWeights.add(weights);
-        }
-
-        //4、合并：把上面各个单词算出来的序列值累加
-        Integer[] weights = new Integer[HASH_BITS];
-        Arrays.fill(weights, 0);
-        for (Integer[] weight : mergeWeights) {
-
-            for (int i = 0; i < HASH_BITS; i++) {
-                weights[i] += weight[i];
-            }
-        }
-
-        //5、降维：大于0 记为 1，小于0 记为 0
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (weights[i] > 0) {
-                sb.append(1);
-            } else {
-                sb.append(0);
-            }
-        }
+    public static final int HAMMING_THRESH = 3;
 
-        System.out.println(sb);
-        return new BigInteger(sb.toString(), 2).longValue();
-    }
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
 
-    public static Long simhash_(Map<String, Integer> words) {
+    /**
+     * 计算加权词语集合的simhash指纹，指纹第 i 位对应第 i 个加权分量
+     */
+    public static long simhash(Map<String, Integer> words) {
         //1、分词：直接加入单词、脏词，所以不存在分词
 
         // 按照词语的hash值，计算simHashWeight(低位对齐)
-        Integer[] weights = new Integer[HASH_BITS];
-        Arrays.fill(weights, 0);
-
-        Set<String> wordSet = words.keySet();
-        for (String word : wordSet) {
+        int[] weights = new int[HASH_BITS];
 
+        for (Map.Entry<String, Integer> entry : words.entrySet()) {
             //2、hash: 计算分词的hash
-            long hash = hash(word);
+            long hash = hash(entry.getKey(), 0, entry.getKey().length());
 
             //3、加权：即W = Hash * weight，且遇到1则hash值和权值正相乘，遇到0则hash值和权值负相乘
+            //4、合并：把上面各个单词算出来的序列值累加
             for (int i = 0; i < HASH_BITS; i++) {
-                Integer weight = 0;
-                if (((hash >> i) & 1) == 1) {
-                    // 3.1 正负值weight
-                    weight += 1;
-                } else {
-                    weight -= 1;
-                }
-
-                // 3.2 增加权重： W = Hash * weight
-                weight *= words.get(word);
-
-                //4、合并：把上面各个单词算出来的序列值累加
-                weights[i] += weight;
+                weights[i] += (((hash >>> i) & 1) == 1) ? entry.getValue() : -entry.getValue();
             }
         }
 
         //5、降维：大于0 记为 1，小于0 记为 0
-        StringBuilder sb = new StringBuilder();
+        long simhash = 0;
         for (int i = 0; i < HASH_BITS; i++) {
             if (weights[i] > 0) {
-                sb.append(1);
-            } else {
-                sb.append(0);
+                simhash |= 1L << i;
             }
         }
-
-        System.out.println(sb);
-        return new BigInteger(sb.toString(), 2).longValue();
+        return simhash;
     }
 
-    public static Long simhash(String word, int weight) {
-        //1、分词：直接加入单词、脏词，所以不存在分词
-
-        //2、hash: 计算分词的hash
-        long hash = hash(word);
-
-        //3、加权：即W = Hash * weight，且遇到1则hash值和权值正相乘，遇到0则hash值和权值负相乘
-        Integer[] weights = new Integer[HASH_BITS];
-        Arrays.fill(weights, 0);
-        // 按照词语的hash值，计算simHashWeight(低位对齐)
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (((hash >> i) & 1) == 1) {
-                // 3.1 正负值weight
-                weights[i] += 1;
-            } else {
-                weights[i] -= 1;
-            }
-
-            // 3.2 增加权重： W = Hash * weight
-            weights[i] *= weight;
-        }
-
-        //4、合并：把上面各个单词算出来的序列值累加
-        // 由于单个词，所以不存在合并
-
-        //5、降维：大于0 记为 1，小于0 记为 0
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (weights[i] > 0) {
-                sb.append(1);
-            } else {
-                sb.append(0);
-            }
+    public static long simhash(String word, int weight) {
+        // 单个词语不存在合并，正权重下降维结果即词语hash本身，负权重为hash取反
+        if (weight == 0) {
+            return 0L;
         }
-
-        System.out.println(sb);
-        return new BigInteger(sb.toString(), 2).longValue();
+        return (weight > 0) ? simhash(word) : ~simhash(word);
     }
 
-    public static Long simhash(String word) {
-        //1、分词：直接加入单词、脏词，所以不存在分词
-
-        //2、hash: 计算分词的hash
-        long hash = hash(word);
-
-        //3、加权：即W = Hash * weight，且遇到1则hash值和权值正相乘，遇到0则hash值和权值负相乘
-        Integer[] weights = new Integer[HASH_BITS];
-        Arrays.fill(weights, 0);
-        // 按照词语的hash值，计算simHashWeight(低位对齐)
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (((hash >> i) & 1) == 1) {
-                // 3.1 正负值weight
-                weights[i] += 1;
-            } else {
-                weights[i] -= 1;
-            }
-
-            // 3.2 增加权重： W = Hash * weight
-            // 权重都一样，所以不存在权重
-        }
-
-        //4、合并：把上面各个单词算出来的序列值累加
-        // 由于单个词，所以不存在合并
-
-        //5、降维：大于0 记为 1，小于0 记为 0
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (weights[i] > 0) {
-                sb.append(1);
-            } else {
-                sb.append(0);
-            }
-        }
-
-        return new BigInteger(sb.toString(), 2).longValue();
+    public static long simhash(String word) {
+        return simhash(word, 0, word.length());
     }
 
-    public static String _simhash(String word) {
-        //1、分词：直接加入单词、脏词，所以不存在分词
-
-        //2、hash: 计算分词的hash
-        long hash = hash(word);
-
-        //3、加权：即W = Hash * weight，且遇到1则hash值和权值正相乘，遇到0则hash值和权值负相乘
-        Integer[] weights = new Integer[HASH_BITS];
-        Arrays.fill(weights, 0);
-        // 按照词语的hash值，计算simHashWeight(低位对齐)
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (((hash >> i) & 1) == 1) {
-                // 3.1 正负值weight
-                weights[i] += 1;
-            } else {
-                weights[i] -= 1;
-            }
-
-            // 3.2 增加权重： W = Hash * weight
-            // 权重都一样，所以不存在权重
-        }
-
-        //4、合并：把上面各个单词算出来的序列值累加
-        // 由于单个词，所以不存在合并
-
-        //5、降维：大于0 记为 1，小于0 记为 0
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < HASH_BITS; i++) {
-            if (weights[i] > 0) {
-                sb.append(1);
-            } else {
-                sb.append(0);
-            }
-        }
-
-        return sb.toString();
+    /**
+     * 计算内容区间 [start, end) 作为单个词语时的simhash指纹，不截取子串
+     * <p>
+     * 单个词语权重相同且不存在合并，每一位加权后大于0当且仅当hash对应位为1，所以指纹即为词语hash。
+     */
+    public static long simhash(CharSequence content, int start, int end) {
+        return hash(content, start, end);
     }
 
-    private static long hash(String target) {
+    private static long hash(CharSequence target, int start, int end) {
 
         //long hash = FNVHashUtils.hash64(target).longValue();
         //long hash = FNVHashUtils.hash64_(target).longValue();
-        long hash = Murmur3.hash64(target.getBytes());
+        long hash = Murmur3.hash64(target, start, end);
 
         return hash;
     }
 
-    public static String[] _chunk(Long simhash) {
-        String[] chunk = new String[CHUNK_COUNT];
-
-        int chunkIndex = 0;
-        int offset = HASH_BITS / CHUNK_COUNT;
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < HASH_BITS; i++) {
-            sb.append(simhash >> i & 1);
-            if ((i + 1) % offset == 0) {
-                chunk[chunkIndex++] = sb.toString();
-                sb.setLength(0);
-            }
-        }
-        return chunk;
+    /**
+     * 取指纹的第 index 段，作为置换表的查找键
+     */
+    public static int chunk(long simhash, int index) {
+        return (int) ((simhash >>> (index * CHUNK_BITS)) & CHUNK_MASK);
     }
 
-    public static String[] chunk(String simhash) {
-
-        String[] chunk = new String[CHUNK_COUNT];
-
-        int offset = HASH_BITS / CHUNK_COUNT;
+    /**
+     * 指纹分段
+     */
+    public static int[] chunks(long simhash) {
+        int[] chunks = new int[CHUNK_COUNT];
         for (int i = 0; i < CHUNK_COUNT; i++) {
-            chunk[i] = simhash.substring(i * offset, i * offset + offset);
-        }
-
-        return chunk;
-    }
-
-    public static Map<String, Set<String>> cartesianProduct(String[] chunks) {
-        Map<String, Set<String>> result = Maps.newHashMap();
-        for (int i = 0; i < chunks.length; i++) {
-            Set<String> set = new HashSet<String>();
-            for (int j = 0; j < chunks.length; j++) {
-                if (j != i) {
-                    set.add(chunks[j]);
-                }
-            }
-
-            result.put(chunks[i], set);
-        }
-        return result;
-    }
-
-    public static Map<String, String> _cartesianProduct(String[] chunks, String simhash) {
-        Map<String, String> result = Maps.newHashMap();
-        for (int i = 0; i < chunks.length; i++) {
-            result.put(chunks[i], simhash);
-        }
-        return result;
-    }
-
-    public static Map<String, Long> _cartesianProduct(String[] chunks, Long simhash) {
-        Map<String, Long> result = Maps.newHashMap();
-        for (int i = 0; i < chunks.length; i++) {
-            result.put(chunks[i], simhash);
-        }
-        return result;
-    }
-
-    public static boolean contains(String word, Map<String, Set<String>> store) {
-
-        String simhash = _simhash(word);
-        String[] chunks = chunk(simhash);
-        for (int i = 0; i < chunks.length; i++) {
-            if (!store.containsKey(chunks[i])) {
-                continue;
-            }
-
-            Set<String> set = store.get(chunks[i]);
-            for (String hash : set) {
-                for (int j = 0; j < chunks.length; j++) {
-                    if (i != j && hammingDistance(hash, chunks[j]) < HAMMING_THRESH) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
-
-    public static boolean _contains(String word, Map<String, String> store) {
-
-        String simhash = _simhash(word);
-        String[] chunks = chunk(simhash);
-        for (int i = 0; i < chunks.length; i++) {
-            if (!store.containsKey(chunks[i])) {
-                continue;
-            }
-
-            if (hammingDistance(simhash, store.get(chunks[i])) < HAMMING_THRESH) {
-                return true;
-            }
+            chunks[i] = chunk(simhash, i);
         }
-
-        return false;
+        return chunks;
     }
 
-    public static boolean __contains(String word, Map<String, Long> store) {
-
-        Long simhash = simhash(word);
-        String[] chunks = _chunk(simhash);
-        for (int i = 0; i < chunks.length; i++) {
-            if (!store.containsKey(chunks[i])) {
-                continue;
-            }
-
-            if (hammingDistance(simhash, store.get(chunks[i])) < HAMMING_THRESH) {
-                return true;
-            }
-        }
-
-        return false;
+    /**
+     * 两个指纹是否相似，即汉明距离小于 {@link #HAMMING_THRESH}
+     */
+    public static boolean similar(long a, long b) {
+        return hammingDistance(a, b) < HAMMING_THRESH;
     }
 
     /**
@@ -415,50 +162,11 @@ public abstract class SimHashUtils {
      * @createDate 2018年3月22日 下午4:53:07
      */
     public static int hammingDistance(int a, int b) {
-        BigInteger _a = BigInteger.valueOf(a);
-        BigInteger _b = BigInteger.valueOf(b);
-
-        int distance = 0;
-
-        char[] bit2s = _a.xor(_b).toString(2).toCharArray();
-        for (char bit : bit2s) {
-            if (bit == '1') {
-                distance++;
-            }
-        }
-
-        return distance;
-    }
-
-    public static int hammingDistance(Long a, Long b) {
-        int distance = 0;
-        for (int i = 0; i < HASH_BITS; i++) {
-            if ((a >> i & 1) != (b >> i & 1)) {
-                distance++;
-            }
-        }
-        return distance;
+        return Integer.bitCount(a ^ b);
     }
 
-    /**
-     * 二进制字符串汉明距离，a=10001 b=01000，distance=3
-     *
-     * @author hoojo
-     * @createDate 2018年3月22日 下午5:06:42
-     */
-    public static int hammingDistance(String a, String b) {
-        int distance = 0;
-
-        if (a.length() != b.length()) {
-            distance = -1;
-        } else {
-            for (int i = 0; i < a.length(); i++) {
-                if (a.charAt(i) != b.charAt(i)) {
-                    distance++;
-                }
-            }
-        }
-        return distance;
+    public static int hammingDistance(long a, long b) {
+        return Long.bitCount(a ^ b);
     }
 
     public static void main(String[] args) {
@@ -468,39 +176,23 @@ public abstract class SimHashUtils {
         words.put("ABCD", 1);
         words.put("中国", 4);
 
-        System.out.println("---------------------");
-        System.out.println(simhash(words));
-        System.out.println("----------------------");
-        System.out.println(simhash_(words));
-        System.out.println("----------------------");
-        System.out.println(simhash("中国", 5));
-        System.out.println("----------------------");
-        System.out.println(simhash("中国"));
-        System.out.println("----------------------");
-        System.out.println("0" + BigInteger.valueOf(simhash("中国")).toString(2));
-        System.out.println("----------------------");
-
-        Long b = simhash(words);
+        long b = simhash(words);
+        System.out.println(Long.toBinaryString(b));
 
         words = new HashMap<String, Integer>();
         words.put("CSDN", 5);
         words.put("ABCE", 1);
         words.put("中国", 4);
-        Long a = simhash(words);
+        long a = simhash(words);
+        System.out.println(Long.toBinaryString(a));
 
-        System.out.println(a);
-        System.out.println(b);
         System.out.println(hammingDistance(b, a));
         System.out.println(hammingDistance(simhash("中国"), simhash("中国")));
 
         System.out.println("----------------------");
-        System.out.println(StringUtils.join(_chunk(b), ";"));
-        System.out.println(StringUtils.join(chunk(_simhash("中国")), ";"));
-
-        System.out.println(cartesianProduct(chunk(_simhash("中国"))));
-
-        System.out.println("----------------------");
-        System.out.println(contains("中间", cartesianProduct(chunk(_simhash("中国")))));
-
+        for (int chunk : chunks(simhash("中国"))) {
+            System.out.println(Integer.toBinaryString(chunk));
+        }
+        System.out.println(similar(simhash("中间"), simhash("中国")));
     }
 }
@@ -0,0 +1,230 @@
+package com.cnblogs.hoojo.sensitivewords.filter.tire;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * tire tree 状态缓存节点
+ * <p>
+ * 加载词语时使用 {@link TireTreeNode} 多叉树，加载完成后冻结为紧凑的数组形式：
+ * 节点编号按广度优先顺序分配，节点 n 的子节点为 [childs[n], childs[n + 1])，且按字符排序，使用二分查找；
+ * 子节点数超过 {@link #HASH_THRESHOLD} 的节点（通常是根节点和少量高频首字）另外建立开放寻址的hash表，
+ * 避免大词库下查找退化。词语结尾的节点编号即词语编号，沿父节点可以还原词语。
+ */
+public class TireTreeCacheNode {
+
+    private static final int ROOT = 0;
+    private static final int HASH_THRESHOLD = 16;
+
+    // 加载阶段的多叉树，冻结后释放
+    private TireTreeNode tree = new TireTreeNode(' ');
+
+    // 节点编号 -> 节点字符
+    private char[] labels;
+    // 节点编号 -> 第一个子节点编号
+    private int[] childs;
+    // 节点编号 -> 父节点编号
+    private int[] parents;
+    // 敏感词结尾的节点编号
+    private BitSet words;
+
+    // 建立了hash表的节点编号，升序
+    private int[] hashNodes;
+    // hashNodes[i] 的hash表为 hashSlots[hashStarts[i], hashStarts[i + 1])，槽位保存 子节点编号 + 1，0表示空
+    private int[] hashStarts;
+    private int[] hashSlots;
+
+    public TireTreeNode getTree() {
+        return tree;
+    }
+
+    /**
+     * 把多叉树冻结为数组形式，并释放多叉树
+     */
+    public void freeze() {
+        // 按广度优先顺序展开节点，处理第 i 个节点时把它的子节点追加到末尾
+        List<TireTreeNode> nodes = Lists.newArrayList();
+        nodes.add(tree);
+
+        List<Integer> starts = Lists.newArrayList();
+        for (int i = 0; i < nodes.size(); i++) {
+            starts.add(nodes.size());
+
+            List<TireTreeNode> childNodes = nodes.get(i).getChilds();
+            if (childNodes != null) {
+                List<TireTreeNode> sorted = Lists.newArrayList(childNodes);
+                sorted.sort((a, b) -> Character.compare(a.getChar(), b.getChar()));
+                nodes.addAll(sorted);
+            }
+        }
+
+        int count = nodes.size();
+        labels = new char[count];
+        childs = new int[count + 1];
+        parents = new int[count];
+        words = new BitSet(count);
+
+        List<Integer> tableNodes = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            TireTreeNode node = nodes.get(i);
+            labels[i] = node.getChar();
+            childs[i] = starts.get(i);
+            if (node.isWord()) {
+                words.set(i);
+            }
+        }
+        childs[count] = count;
+
+        for (int i = 0; i < count; i++) {
+            for (int child = childs[i]; child < childs[i + 1]; child++) {
+                parents[child] = i;
+            }
+            if (childs[i + 1] - childs[i] > HASH_THRESHOLD) {
+                tableNodes.add(i);
+            }
+        }
+        buildHashTables(Ints.toArray(tableNodes));
+
+        tree = null;
+    }
+
+    private void buildHashTables(int[] tableNodes) {
+        hashNodes = tableNodes;
+        hashStarts = new int[tableNodes.length + 1];
+
+        int total = 0;
+        for (int i = 0; i < tableNodes.length; i++) {
+            hashStarts[i] = total;
+            total += tableSize(childs[tableNodes[i] + 1] - childs[tableNodes[i]]);
+        }
+        hashStarts[tableNodes.length] = total;
+
+        hashSlots = new int[total];
+        for (int i = 0; i < tableNodes.length; i++) {
+            int node = tableNodes[i];
+            int start = hashStarts[i];
+            int mask = hashStarts[i + 1] - start - 1;
+
+            for (int child = childs[node]; child < childs[node + 1]; child++) {
+                int slot = hash(labels[child]) & mask;
+                while (hashSlots[start + slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashSlots[start + slot] = child + 1;
+            }
+        }
+    }
+
+    private static int tableSize(int fanOut) {
+        return Integer.highestOneBit(fanOut * 2 - 1) << 1;
+    }
+
+    private static int hash(char c) {
+        return (c * 0x9E3779B1) >>> 16;
+    }
+
+    /**
+     * 子节点查找，大分支节点查hash表，其余节点在排序的子节点字符上二分查找
+     *
+     * @return 子节点编号，不存在时返回-1
+     */
+    public int child(int node, char c) {
+        int low = childs[node];
+        int high = childs[node + 1] - 1;
+
+        if (high - low >= HASH_THRESHOLD) {
+            return hashChild(node, c);
+        }
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = labels[mid];
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int hashChild(int node, char c) {
+        int index = (node == ROOT) ? 0 : Arrays.binarySearch(hashNodes, node);
+        int start = hashStarts[index];
+        int mask = hashStarts[index + 1] - start - 1;
+
+        int slot = hash(c) & mask;
+        int child;
+        while ((child = hashSlots[start + slot]) != 0) {
+            if (labels[child - 1] == c) {
+                return child - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int getRoot() {
+        return ROOT;
+    }
+
+    public boolean isWord(int node) {
+        return words.get(node);
+    }
+
+    /**
+     * 词语结尾的节点编号
+     *
+     * @return 节点编号，不是词语时返回-1
+     */
+    public int index(CharSequence content, int start, int end) {
+        if (start >= end || labels == null) {
+            return -1;
+        }
+
+        int node = ROOT;
+        for (int i = start; i < end && node >= 0; i++) {
+            node = child(node, content.charAt(i));
+        }
+        return (node > ROOT && words.get(node)) ? node : -1;
+    }
+
+    /**
+     * 沿父节点还原词语，与 {@link #index(CharSequence, int, int)} 互逆
+     *
+     * @return 词语，节点不是词语结尾时返回null
+     */
+    public String word(int node) {
+        if (node <= ROOT || !words.get(node)) {
+            return null;
+        }
+
+        int length = 0;
+        for (int n = node; n > ROOT; n = parents[n]) {
+            length++;
+        }
+        char[] word = new char[length];
+        for (int n = node; n > ROOT; n = parents[n]) {
+            word[--length] = labels[n];
+        }
+        return new String(word);
+    }
+
+    public int getWordCount() {
+        return words == null ? 0 : words.cardinality();
+    }
+
+    public boolean isLeaf(int node) {
+        return childs[node] == childs[node + 1];
+    }
+
+    public int getNodeCount() {
+        return labels == null ? 0 : labels.length;
+    }
+}
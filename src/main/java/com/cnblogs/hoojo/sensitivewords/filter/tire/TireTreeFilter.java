@@ -2,24 +2,46 @@ package com.cnblogs.hoojo.sensitivewords.filter.tire;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterOptions;
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * tire tree 算法脱敏词库支持类
+ * <p>
+ * 加载完成后多叉树冻结为紧凑数组（见 {@link TireTreeCacheNode}），子节点查找不再随词库增大而线性退化。
  */
-public final class TireTreeFilter extends BaseWordsFilter<TireTreeNode> {
+public final class TireTreeFilter extends BaseWordsFilter<TireTreeCacheNode> {
 
     public TireTreeFilter(WordsCategory wordSet) {
         super(wordSet);
     }
 
+    /**
+     * @param options 过滤器选项，支持跳过词语字符之间的干扰字符，不支持堆外存储
+     */
+    public TireTreeFilter(WordsCategory wordSet, FilterOptions options) {
+        super(wordSet, checkOptions(options));
+    }
+
+    private static FilterOptions checkOptions(FilterOptions options) {
+        if (options.isOffHeap()) {
+            throw new IllegalArgumentException("TIRE算法不支持堆外存储");
+        }
+        return options;
+    }
+
     @Override
-    protected TireTreeNode createState() {
-        return new TireTreeNode(' ');
+    protected TireTreeCacheNode createState() {
+        return new TireTreeCacheNode();
     }
 
     @Override
-    protected boolean putOneWord(TireTreeNode state, String word) throws RuntimeException {
+    protected void loadCompete(WordsCategory wordSet, TireTreeCacheNode state) {
+        state.freeze();
+    }
+
+    @Override
+    protected boolean putOneWord(TireTreeCacheNode state, String word) throws RuntimeException {
 
         if (StringUtils.isBlank(word)) {
             return false;
@@ -30,11 +52,12 @@ public final class TireTreeFilter extends BaseWordsFilter<TireTreeNode> {
             return false;
         }
 
+        TireTreeNode tree = state.getTree();
         char fisrtChar = word.charAt(0);
-        TireTreeNode node = state.find(fisrtChar);
+        TireTreeNode node = tree.find(fisrtChar);
         if (node == null) {
             node = new TireTreeNode(fisrtChar);
-            state.addChild(node);
+            tree.addChild(node);
         }
 
         for (int i = 1; i < word.length(); i++) {
@@ -69,48 +92,51 @@ public final class TireTreeFilter extends BaseWordsFilter<TireTreeNode> {
      * @author hoojo
      * @createDate 2018年2月9日 下午2:54:59
      */
-    protected boolean processor(boolean partMatch, String content, Callback callback) throws RuntimeException {
-
-        if (StringUtils.isBlank(content)) {
-            return false;
-        }
-
-        content = StringUtils.trim(content);
-        if (content.length() < 2) {
-            return false;
-        }
-
-        for (int index = 0; index < content.length(); index++) {
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) throws RuntimeException {
+        TireTreeCacheNode state = getState();
+        FilterOptions options = getOptions();
+        int maxGap = options.isSkipNoise() ? options.getMaxGap() : 0;
+        for (int index = start; index < end; index++) {
             char fisrtChar = content.charAt(index);
 
-            TireTreeNode node = getState().find(fisrtChar);
-            if (node == null || node.isLeaf()) {
+            int node = state.child(state.getRoot(), fisrtChar);
+            if (node < 0 || state.isLeaf(node)) {
                 continue;
             }
 
             int charCount = 1;
-            for (int i = index + 1; i < content.length(); i++) {
+            int gap = 0;
+            for (int i = index + 1; i < end; i++) {
                 char wordChar = content.charAt(i);
 
-                node = node.find(wordChar);
-                if (node != null) {
+                int next = state.child(node, wordChar);
+                if (next < 0 && gap < maxGap && options.isNoise(wordChar)) {
+                    // 跳过词语字符之间的干扰字符，命中位置包括干扰字符
+                    gap++;
+                    charCount++;
+                    continue;
+                }
+
+                node = next;
+                gap = 0;
+                if (node >= 0) {
                     charCount++;
                 } else {
                     break;
                 }
 
-                if (partMatch && node.isWord()) {
-                    if (callback.call(StringUtils.substring(content, index, index + charCount))) {
+                if (partMatch && state.isWord(node)) {
+                    if (callback.call(index, index + charCount, node)) {
                         return true;
                     }
                     break;
-                } else if (node.isWord()) {
-                    if (callback.call(StringUtils.substring(content, index, index + charCount))) {
+                } else if (state.isWord(node)) {
+                    if (callback.call(index, index + charCount, node)) {
                         return true;
                     }
                 }
 
-                if (node.isLeaf()) {
+                if (state.isLeaf(node)) {
                     break;
                 }
             }
@@ -123,4 +149,26 @@ public final class TireTreeFilter extends BaseWordsFilter<TireTreeNode> {
         return false;
     }
 
+    /**
+     * 词语编号为词语结尾的节点编号，匹配时直接由状态给出，跳过干扰字符的命中同样能得到词语
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        return getState().index(content, start, end);
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        return getState().word(wordId);
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getNodeCount();
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getWordCount();
+    }
 }
@@ -1,9 +1,25 @@
 package com.cnblogs.hoojo.sensitivewords.filter.ttmp;
 
-import java.util.HashSet;
+import com.cnblogs.hoojo.sensitivewords.filter.WordHashTable;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * 数据缓存节点
+ * <p>
+ * 每个字符对应三个 long 掩码，按 {@link TtmpCharTable} 中的字符编号保存：
+ * <ul>
+ * <li>positionMasks：第 k 位表示字符出现在某个脏词的第 k 个位置（从0开始，63及以后统一记在第63位）</li>
+ * <li>lengthMasks：第 (length - 1) 位表示存在以该字符开头、长度为 length 的脏词</li>
+ * <li>endMasks：第 (length - 1) 位表示存在以该字符结尾、长度为 length 的脏词</li>
+ * </ul>
+ * 候选词语通过指纹表精确校验，不需要截取子串。
+ * <p>
+ * 加载时只收集词语，字符编号表在 {@link #build(TtmpCharTable)} 时传入，可以与同一次构建的其他分类共享。
+ * 共享的只是编号表，掩码数组仍由每个分类各自保存，长度为本分类用到的最大编号 + 1：各分类并行登记字符时编号交错分配，
+ * 小分类的掩码数组也会接近所有分类字符总数的长度（每个编号 3 个 long，24 字节）。
  *
  * @author hoojo
  * @version 1.0
@@ -16,77 +32,120 @@ import java.util.HashSet;
  */
 public class TtmpCacheNode {
 
-    // 保存所有脏词
-    private HashSet<String> hash = new HashSet<String>();
+    private TtmpCharTable charTable;
+    // 加载阶段的词语，构建后释放
+    private List<String> words = Lists.newArrayList();
 
-    // 是否是脏词中首字符
-    private byte[] fastCheck = new byte[Character.MAX_VALUE];
-    // 脏词首字符 长度
-    private byte[] fastLength = new byte[Character.MAX_VALUE];
+    // 保存所有脏词
+    private final WordHashTable hash = new WordHashTable();
 
-    // 判断是否是一个字的脏词
-    private boolean[] charCheck = new boolean[Character.MAX_VALUE];
-    // 记录所有脏字中的停止字符
-    private boolean[] endCheck = new boolean[Character.MAX_VALUE];
+    // 字符编号 -> 位置掩码
+    private long[] positionMasks = new long[16];
+    // 字符编号 -> 首字符长度掩码
+    private long[] lengthMasks = new long[16];
+    // 字符编号 -> 尾字符长度掩码
+    private long[] endMasks = new long[16];
 
     // 脏词中长度最大词的length
     private int maxWordLength = 0;
     // 脏词中长度最小词的length
     private int minWordLength = Integer.MAX_VALUE;
 
-    public HashSet<String> getHash() {
-        return hash;
+    public static long bit(int index) {
+        return 1L << Math.min(index, Long.SIZE - 1);
     }
 
-    public void setHash(HashSet<String> hash) {
-        this.hash = hash;
-    }
+    public void put(String word) {
+        maxWordLength = Math.max(maxWordLength, word.length());
+        minWordLength = Math.min(minWordLength, word.length());
 
-    public byte[] getFastCheck() {
-        return fastCheck;
+        words.add(word);
+        hash.put(word);
     }
 
-    public void setFastCheck(byte[] fastCheck) {
-        this.fastCheck = fastCheck;
+    /**
+     * 使用字符编号表计算已加载词语的掩码，并释放加载的词语
+     */
+    public void build(TtmpCharTable charTable) {
+        this.charTable = charTable;
+        for (String word : words) {
+            mask(word);
+        }
+        trim();
+        words = null;
     }
 
-    public byte[] getFastLength() {
-        return fastLength;
+    private void mask(String word) {
+        long lengthBit = bit(word.length() - 1);
+        for (int i = 0; i < word.length(); i++) {
+            int slot = slotFor(word.charAt(i));
+            positionMasks[slot] |= bit(i);
+
+            if (i == 0) {
+                lengthMasks[slot] |= lengthBit;
+            }
+            if (i == word.length() - 1) {
+                endMasks[slot] |= lengthBit;
+            }
+        }
     }
 
-    public void setFastLength(byte[] fastLength) {
-        this.fastLength = fastLength;
+    private int slotFor(char c) {
+        int slot = charTable.register(c);
+        if (slot >= positionMasks.length) {
+            int size = Math.max(slot + 1, positionMasks.length * 2);
+            positionMasks = Arrays.copyOf(positionMasks, size);
+            lengthMasks = Arrays.copyOf(lengthMasks, size);
+            endMasks = Arrays.copyOf(endMasks, size);
+        }
+        return slot;
     }
 
-    public int getMaxWordLength() {
-        return maxWordLength;
+    /**
+     * 去掉多余的编号空间
+     */
+    private void trim() {
+        int size = 1;
+        for (int i = positionMasks.length - 1; i > 0; i--) {
+            if (positionMasks[i] != 0) {
+                size = i + 1;
+                break;
+            }
+        }
+        positionMasks = Arrays.copyOf(positionMasks, size);
+        lengthMasks = Arrays.copyOf(lengthMasks, size);
+        endMasks = Arrays.copyOf(endMasks, size);
     }
 
-    public void setMaxWordLength(int maxWordLength) {
-        this.maxWordLength = maxWordLength;
+    /**
+     * 字符编号，编号超出本分类的范围时返回0
+     */
+    public int slotOf(char c) {
+        int slot = charTable.slotOf(c);
+        return (slot < positionMasks.length) ? slot : 0;
     }
 
-    public int getMinWordLength() {
-        return minWordLength;
+    public long getPositionMask(int slot) {
+        return positionMasks[slot];
     }
 
-    public void setMinWordLength(int minWordLength) {
-        this.minWordLength = minWordLength;
+    public long getLengthMask(int slot) {
+        return lengthMasks[slot];
     }
 
-    public boolean[] getCharCheck() {
-        return charCheck;
+    public long getEndMask(int slot) {
+        return endMasks[slot];
     }
 
-    public void setCharCheck(boolean[] charCheck) {
-        this.charCheck = charCheck;
+    public WordHashTable getHash() {
+        return hash;
     }
 
-    public boolean[] getEndCheck() {
-        return endCheck;
+    public int getMaxWordLength() {
+        return maxWordLength;
     }
 
-    public void setEndCheck(boolean[] endCheck) {
-        this.endCheck = endCheck;
+    public int getMinWordLength() {
+        return minWordLength;
     }
 }
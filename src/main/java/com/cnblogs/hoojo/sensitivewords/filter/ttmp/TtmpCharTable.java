@@ -0,0 +1,37 @@
+package com.cnblogs.hoojo.sensitivewords.filter.ttmp;
+
+/**
+ * TTMP 字符编号表
+ * <p>
+ * 把敏感词中出现过的字符映射为紧凑的编号，同一次构建的分类共享同一张表（见 DefaultWordsFilterContext）：
+ * 分类之间字符重叠时只占用一个编号，每个分类只需按编号保存自己的位置掩码，不再为每个分类分配 65536 长度的数组。
+ * 编号只增不减，0 表示字符不在任何词库中；表由使用它的过滤器引用，过滤器被替换后随之释放。
+ */
+public final class TtmpCharTable {
+
+    // 字符 -> 编号
+    private final char[] slots = new char[Character.MAX_VALUE + 1];
+    private int slotCount = 0;
+
+    /**
+     * 登记字符，返回字符编号
+     */
+    public synchronized int register(char c) {
+        int slot = slots[c];
+        if (slot == 0) {
+            if (slotCount == Character.MAX_VALUE) {
+                throw new IllegalStateException("字符编号已用尽");
+            }
+            slot = ++slotCount;
+            slots[c] = (char) slot;
+        }
+        return slot;
+    }
+
+    /**
+     * 字符编号，未登记时返回0
+     */
+    public int slotOf(char c) {
+        return slots[c];
+    }
+}
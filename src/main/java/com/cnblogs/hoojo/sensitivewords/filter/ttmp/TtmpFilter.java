@@ -2,6 +2,7 @@ package com.cnblogs.hoojo.sensitivewords.filter.ttmp;
 
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.WordHashTable;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -19,7 +20,16 @@ import org.apache.commons.lang3.StringUtils;
 public final class TtmpFilter extends BaseWordsFilter<TtmpCacheNode> {
 
     public TtmpFilter(WordsCategory wordSet) {
+        this(wordSet, new TtmpCharTable());
+    }
+
+    /**
+     * @param charTable 字符编号表，同一次构建的分类可以共享，见 {@link TtmpCharTable}
+     */
+    public TtmpFilter(WordsCategory wordSet, TtmpCharTable charTable) {
         super(wordSet);
+        // 父类构造函数中只收集词语，编号表在此之后才可用
+        getState().build(charTable);
     }
 
     @Override
@@ -29,103 +39,87 @@ public final class TtmpFilter extends BaseWordsFilter<TtmpCacheNode> {
 
     @Override
     protected boolean putOneWord(TtmpCacheNode state, String word) throws RuntimeException {
-
-        state.setMaxWordLength(Math.max(state.getMaxWordLength(), word.length()));
-        state.setMinWordLength(Math.min(state.getMinWordLength(), word.length()));
-
-        for (int i = 0; i < 7 && i < word.length(); i++) {
-            byte[] fastCheck = state.getFastCheck();
-            fastCheck[word.charAt(i)] |= (byte) (1 << i);
-
-            state.setFastCheck(fastCheck);
-        }
-
-        for (int i = 7; i < word.length(); i++) {
-            byte[] fastCheck = state.getFastCheck();
-            fastCheck[word.charAt(i)] |= 0x80;
-
-            state.setFastCheck(fastCheck);
-        }
-
-        if (word.length() == 1) {
-            state.getCharCheck()[word.charAt(0)] = true;
-        } else {
-            state.getEndCheck()[word.charAt(word.length() - 1)] = true;
-
-            byte[] fastLength = state.getFastLength();
-            fastLength[word.charAt(0)] |= (byte) (1 << (Math.min(7, word.length() - 2)));
-
-            state.setFastLength(fastLength);
-
-            state.getHash().add(word);
-        }
-
-        return false;
-    }
-
-    protected boolean processor(boolean partMatch, String content, Callback callback) {
-        if (StringUtils.isBlank(content)) {
+        if (StringUtils.isBlank(word)) {
             return false;
         }
-        content = StringUtils.trim(content);
-
-        int index = 0;
-        while (index < content.length()) {
-            int count = 1;
 
-            if (partMatch) {
-                if (index > 0 || (getState().getFastCheck()[content.charAt(index)] & 1) == 0) {
-                    // 匹配到下一个“可能是脏词”首字符的位置
-                    while (index < content.length() - 1 && (getState().getFastCheck()[content.charAt(++index)] & 1) == 0)
-                        ;
-                }
-            }
+        state.put(StringUtils.trim(word));
+        return true;
+    }
 
+    protected boolean processor(boolean partMatch, String content, int start, int end, Callback callback) {
+        TtmpCacheNode state = getState();
+        WordHashTable hash = state.getHash();
+        for (int index = start; index < end; index++) {
             // 取得下一个脏词文本的第一个字符
             char begin = content.charAt(index);
-
-            // 表示是简单脏词，单个字脏词
-            if (getState().getMinWordLength() == 1 && getState().getCharCheck()[begin]) {
-
-                if (callback.call(String.valueOf(begin))) {
-                    return true;
-                }
+            int beginSlot = state.slotOf(begin);
+            if ((state.getPositionMask(beginSlot) & 1) == 0) {
+                continue;
             }
 
-            // 比对的次数是 当前文本剩余比对长度 或者 脏词的最大长度
-            for (int j = 1; j <= Math.min(getState().getMaxWordLength(), content.length() - index - 1); j++) {
-                char current = content.charAt(index + j);
+            long lengthMask = state.getLengthMask(beginSlot);
+            long wordHash = WordHashTable.next(0, begin);
 
-                if ((getState().getFastCheck()[current] & 1) == 0) { // 非首字符
-                    ++count;
+            // 比对的次数是 当前文本剩余比对长度 或者 脏词的最大长度
+            int count = Math.min(state.getMaxWordLength(), end - index);
+            for (int j = 0; j < count; j++) {
+                int slot = beginSlot;
+                if (j > 0) {
+                    char current = content.charAt(index + j);
+                    slot = state.slotOf(current);
+
+                    // 当前字符不会出现在脏词的第 j 个位置
+                    if ((state.getPositionMask(slot) & TtmpCacheNode.bit(j)) == 0) {
+                        break;
+                    }
+                    wordHash = WordHashTable.next(wordHash, current);
                 }
 
-                if ((getState().getFastCheck()[current] & (1 << Math.min(j, 7))) == 0) { // 当前字符在脏词中的位置超过7位
-                    break;
+                // 判断首字符存在该长度的脏词，且当前字符是该长度脏词的结尾字符
+                long lengthBit = TtmpCacheNode.bit(j);
+                if ((lengthMask & lengthBit) == 0 || (state.getEndMask(slot) & lengthBit) == 0) {
+                    continue;
                 }
 
-                if (j + 1 >= getState().getMinWordLength()) { // 当前比对词长度小于等于最大脏词的长度
-                    // 判断当前字符是否是脏词最后一个字符
-                    if ((getState().getFastLength()[begin] & (1 << Math.min(j - 1, 7))) > 0 && getState().getEndCheck()[current]) {
-                        String sub = content.substring(index, index + j + 1);
+                int id = hash.find(content, index, index + j + 1, wordHash);
+                if (id >= 0) { // 判断是否是脏词
+                    if (callback.call(index, index + j + 1, id)) {
+                        return true;
+                    }
 
-                        if (getState().getHash().contains(sub)) { // 判断是否是脏词
-                            if (callback.call(sub)) {
-                                return true;
-                            }
-                        }
+                    if (partMatch) {
+                        index += j;
+                        break;
                     }
                 }
             }
-
-            if (partMatch) {
-                index++;
-            } else {
-                index += count;
-            }
         }
 
         return false;
     }
 
+    /**
+     * 校验候选词语的指纹表同时用于查找词语编号
+     */
+    @Override
+    protected int indexOf(CharSequence content, int start, int end) {
+        return getState().getHash().find(content, start, end, WordHashTable.hash(content, start, end));
+    }
+
+    @Override
+    protected String wordOf(int wordId) {
+        WordHashTable words = getState().getHash();
+        return (wordId >= 0 && wordId < words.size()) ? words.getWord(wordId) : null;
+    }
+
+    @Override
+    protected int getWordIdLimit() {
+        return getState().getHash().size();
+    }
+
+    @Override
+    protected int getWordCount() {
+        return getState().getHash().size();
+    }
 }
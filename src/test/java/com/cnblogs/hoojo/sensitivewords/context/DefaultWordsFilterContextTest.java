@@ -1,8 +1,13 @@
 package com.cnblogs.hoojo.sensitivewords.context;
 
+import com.cnblogs.hoojo.sensitivewords.common.CharFolder;
 import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
 import com.cnblogs.hoojo.sensitivewords.exception.CreateWordsFilterException;
+import com.cnblogs.hoojo.sensitivewords.filter.BaseWordsFilter;
+import com.cnblogs.hoojo.sensitivewords.filter.BatchHits;
+import com.cnblogs.hoojo.sensitivewords.filter.FilterOptions;
 import com.cnblogs.hoojo.sensitivewords.filter.WordsFilter;
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.io.CharSource;
@@ -15,10 +20,16 @@ import org.testng.annotations.Test;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultWordsFilterContextTest {
@@ -161,4 +172,307 @@ public class DefaultWordsFilterContextTest {
         System.out.printf("after:\n%s\n", result);
         Assert.assertNotNull(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCombinedMode() throws CreateWordsFilterException {
+        DefaultWordsFilterContext perFilter = DefaultWordsFilterContext.build(FilterType.AHO_CORASICK, wordsCategoryList);
+        DefaultWordsFilterContext combined = DefaultWordsFilterContext.build(FilterType.AHO_CORASICK, wordsCategoryList, ScanMode.COMBINED);
+
+        for (boolean partMatch : new boolean[]{false, true}) {
+            List<String> expected = Lists.newArrayList();
+            Set<String> expectedWords = perFilter.match(partMatch, testContent, (filterName, wordsCategory, result) -> {
+                expected.add(wordsCategory + result);
+                return true;
+            });
+
+            List<String> actual = Lists.newArrayList();
+            Set<String> actualWords = combined.match(partMatch, testContent, (filterName, wordsCategory, result) -> {
+                actual.add(wordsCategory + result);
+                return true;
+            });
+
+            Assert.assertEquals(actual, expected);
+            Assert.assertEquals(actualWords, expectedWords);
+            Assert.assertEquals(combined.contains(partMatch, testContent, null), perFilter.contains(partMatch, testContent, null));
+        }
+
+        combined.remove(WORDS_FILES[0]);
+        Assert.assertEquals(combined.getFilters().size(), wordsCategoryList.size() - 1);
+        Assert.assertFalse(combined.match(false, testContent).isEmpty());
+    }
+
+    @Test
+    public void testParallelMode() throws CreateWordsFilterException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DefaultWordsFilterContext perFilter = DefaultWordsFilterContext.build(FilterType.DFA, wordsCategoryList);
+            DefaultWordsFilterContext parallel = DefaultWordsFilterContext.build(FilterType.DFA, wordsCategoryList, executor);
+
+            List<String> expected = Lists.newArrayList();
+            Set<String> expectedWords = perFilter.match(false, testContent, (filterName, wordsCategory, result) -> {
+                expected.add(filterName);
+                return expected.size() < 3;
+            });
+
+            List<String> actual = Lists.newArrayList();
+            Set<String> actualWords = parallel.match(false, testContent, (filterName, wordsCategory, result) -> {
+                actual.add(filterName);
+                return actual.size() < 3;
+            });
+
+            Assert.assertEquals(actual, expected);
+            Assert.assertEquals(actualWords, expectedWords);
+            Assert.assertTrue(parallel.contains(false, testContent, null));
+            Assert.assertFalse(parallel.contains(false, "abcdefg", null));
+            Assert.assertEquals(parallel.filter(false, "abcdefg", '*'), "abcdefg");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelScanStops() throws CreateWordsFilterException {
+        WordsFilter filter = DefaultWordsFilterContext.buildFilter(FilterType.DFA, new WordsCategory("stop", Lists.newArrayList("赌博")));
+        String content = Strings.repeat("赌博", 100000);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Assert.assertEquals(DefaultWordsFilterContext.collect(filter, false, content, stop).size(), 100000);
+
+        // 调用方不再需要结果后，正在执行的扫描在下一次命中时结束，不再扫描剩余内容
+        stop.set(true);
+        Assert.assertEquals(DefaultWordsFilterContext.collect(filter, false, content, stop).size(), 0);
+
+        // contains 任务同样使用 stop，不再完整执行过滤器的 contains
+        Assert.assertTrue(DefaultWordsFilterContext.contains(filter, false, content, new AtomicBoolean()));
+        Assert.assertFalse(DefaultWordsFilterContext.contains(filter, false, content, stop));
+    }
+
+    @Test
+    public void testBatch() throws IOException, CreateWordsFilterException {
+        List<String> messages = Resources.readLines(Resources.getResource(TEST_CONTENT_FILE), StandardCharsets.UTF_8);
+        messages.add("");
+        messages.add("abcdefg");
+
+        for (ScanMode scanMode : ScanMode.values()) {
+            DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.AHO_CORASICK, wordsCategoryList, scanMode);
+            for (boolean parallel : new boolean[]{false, true}) {
+                BitSet contains = context.containsAll(false, messages, parallel);
+                BatchHits hits = context.matchAll(false, messages, parallel);
+                Assert.assertEquals(hits.size(), messages.size());
+
+                for (int i = 0; i < messages.size(); i++) {
+                    String message = messages.get(i);
+                    Set<String> expected = message.isEmpty() ? Sets.newHashSet() : context.match(false, message);
+                    Assert.assertEquals(contains.get(i), !expected.isEmpty(), message);
+
+                    Set<String> words = Sets.newHashSet();
+                    for (int k = hits.from(i); k < hits.to(i); k++) {
+                        words.add(message.substring(hits.getHits().getStart(k), hits.getHits().getEnd(k)));
+                    }
+                    Assert.assertEquals(words, expected, message);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCharFolding() throws CreateWordsFilterException {
+        List<WordsCategory> categories = Lists.newArrayList(new WordsCategory("folding", Lists.newArrayList("赌博", "Abc")));
+        String content = "他說ａＢＣ是賭博";
+
+        for (ScanMode scanMode : ScanMode.values()) {
+            DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DFA, categories, scanMode, CharFolder.defaults());
+
+            Assert.assertEquals(context.match(false, content), Sets.newHashSet("赌博", "abc"));
+            Assert.assertEquals(context.filter(false, content, '*'), "他說***是**");
+            Assert.assertEquals(context.highlight(false, content), "他說<font color='red'>ａＢＣ</font>是<font color='red'>賭博</font>");
+        }
+        Assert.assertFalse(DefaultWordsFilterContext.build(FilterType.DFA, categories).contains(false, content, null));
+    }
+
+    @Test
+    public void testSnapshot() throws IOException, CreateWordsFilterException {
+        DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DAAC, wordsCategoryList);
+        Path directory = Files.createTempDirectory("snapshot");
+        context.saveSnapshot(directory);
+
+        for (ScanMode scanMode : ScanMode.values()) {
+            DefaultWordsFilterContext restored = DefaultWordsFilterContext.open(directory, scanMode, null);
+
+            Assert.assertEquals(restored.getType(), FilterType.DAAC);
+            Assert.assertEquals(restored.getCategoryNames(), context.getCategoryNames());
+            Assert.assertEquals(restored.match(false, testContent), context.match(false, testContent));
+            Assert.assertEquals(restored.filter(true, testContent, '*'), context.filter(true, testContent, '*'));
+        }
+
+        // 恢复后的词语编号与原过滤器一致，且能还原为命中的词语
+        DefaultWordsFilterContext restored = DefaultWordsFilterContext.open(directory, ScanMode.PER_FILTER, null);
+        for (String category : context.getCategoryNames()) {
+            WordsFilter filter = context.getFilter(category);
+            WordsFilter restoredFilter = restored.getFilter(category);
+            filter.scan(false, testContent, (start, end, wordId, ignored) -> {
+                Assert.assertEquals(restoredFilter.getWordId(testContent, start, end), wordId);
+                Assert.assertEquals(restoredFilter.getWord(wordId), testContent.substring(start, end));
+                return false;
+            });
+        }
+
+        // 内容被修改的快照不能加载
+        Path file = directory.resolve("0000" + DefaultWordsFilterContext.SNAPSHOT_SUFFIX);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        try {
+            DefaultWordsFilterContext.open(directory, ScanMode.PER_FILTER, null);
+            Assert.fail();
+        } catch (CreateWordsFilterException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testIncrementalWords() throws CreateWordsFilterException {
+        List<WordsCategory> categories = Lists.newArrayList(new WordsCategory("delta", Lists.newArrayList("赌博", "色情")));
+        String content = "赌博色情代开发票";
+
+        for (ScanMode scanMode : ScanMode.values()) {
+            DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DAAC, categories, scanMode);
+
+            context.addWords("delta", Lists.newArrayList("代开发票", "发票"));
+            context.removeWords("delta", Lists.newArrayList("赌博"));
+            Assert.assertEquals(context.match(false, content), Sets.newHashSet("色情", "代开发票", "发票"));
+            // 部分匹配与 DFA 相同，命中“色情”后跳过其后的一个字符；已删除的“赌博”不影响其后的词语
+            Assert.assertEquals(context.filter(true, content, '*'), "赌博**代开**");
+            Assert.assertFalse(context.contains(false, "赌博", null));
+
+            BaseWordsFilter<?> filter = (BaseWordsFilter<?>) context.getFilter("delta");
+            Assert.assertEquals(filter.getDeltaSize(), 3);
+            Assert.assertEquals(filter.getWord(filter.getWordId(content, 4, 8)), "代开发票");
+
+            // 合并后结果不变
+            BaseWordsFilter<?> compacted = (BaseWordsFilter<?>) context.compact("delta");
+            Assert.assertNotSame(compacted, filter);
+            Assert.assertEquals(compacted.getDeltaSize(), 0);
+            Assert.assertSame(context.getFilter("delta"), compacted);
+            Assert.assertEquals(context.match(false, content), Sets.newHashSet("色情", "代开发票", "发票"));
+            Assert.assertEquals(context.filter(true, content, '*'), "赌博**代开**");
+
+            context.addWords("delta", Lists.newArrayList("赌博"));
+            Assert.assertEquals(context.filter(false, content, '*'), "********");
+        }
+    }
+
+    @Test
+    public void testBackgroundCompaction() throws Exception {
+        List<WordsCategory> categories = Lists.newArrayList(new WordsCategory("delta", Lists.newArrayList("赌博")));
+        ExecutorService buildExecutor = Executors.newSingleThreadExecutor();
+        try {
+            DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DFA, categories, ScanMode.PER_FILTER, null, FilterOptions.NONE, buildExecutor);
+            List<String> words = Lists.newArrayList();
+            for (int i = 0; i < DefaultWordsFilterContext.COMPACT_THRESHOLD; i++) {
+                words.add("词语" + i);
+            }
+            context.addWords("delta", words);
+
+            // 后台合并提交到构建线程池，等待线程池中已提交的任务完成
+            buildExecutor.submit(() -> null).get();
+            Assert.assertEquals(((BaseWordsFilter<?>) context.getFilter("delta")).getDeltaSize(), 0);
+            Assert.assertTrue(context.contains(false, "词语255", null));
+        } finally {
+            buildExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVersionedReload() throws Exception {
+        List<WordsCategory> before = Lists.newArrayList(new WordsCategory("reload", Lists.newArrayList("赌博")));
+        List<WordsCategory> after = Lists.newArrayList(new WordsCategory("reload", Lists.newArrayList("色情")));
+        String content = "赌博色情";
+
+        for (ScanMode scanMode : ScanMode.values()) {
+            DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DFA, before, scanMode);
+            long version = context.getVersion();
+            Assert.assertEquals(context.matchAll(false, Lists.newArrayList(content), false).getVersion(), version);
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Assert.assertEquals(context.reloadAsync(after, executor).get().longValue(), version + 1);
+            } finally {
+                executor.shutdown();
+            }
+
+            BatchHits hits = context.matchAll(false, Lists.newArrayList(content), false);
+            Assert.assertEquals(hits.getVersion(), version + 1);
+            Assert.assertEquals(context.match(false, content), Sets.newHashSet("色情"));
+
+            context.addWords("reload", Lists.newArrayList("赌博"));
+            Assert.assertEquals(context.getVersion(), version + 2);
+            Assert.assertEquals(context.match(false, content), Sets.newHashSet("赌博", "色情"));
+        }
+    }
+
+    @Test
+    public void testDirectoryLoader() throws Exception {
+        Path directory = Files.createTempDirectory("words");
+        Files.write(directory.resolve("a.txt"), Lists.newArrayList("赌博", "色情"), StandardCharsets.UTF_8);
+
+        DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DFA, Lists.newArrayList());
+        try (WordsDirectoryLoader loader = WordsDirectoryLoader.start(context, directory, 50)) {
+            Assert.assertEquals(context.getCategoryNames(), Sets.newHashSet("a.txt"));
+            Assert.assertEquals(context.match(false, "赌博色情发票"), Sets.newHashSet("赌博", "色情"));
+
+            long version = context.getVersion();
+            Files.write(directory.resolve("b.txt"), Lists.newArrayList("发票"), StandardCharsets.UTF_8);
+            awaitVersion(context, version);
+            Assert.assertEquals(context.match(false, "赌博色情发票"), Sets.newHashSet("赌博", "色情", "发票"));
+
+            version = context.getVersion();
+            Files.delete(directory.resolve("a.txt"));
+            awaitVersion(context, version);
+            Assert.assertEquals(context.getCategoryNames(), Sets.newHashSet("b.txt"));
+        }
+    }
+
+    private static void awaitVersion(DefaultWordsFilterContext context, long version) throws InterruptedException {
+        for (int i = 0; i < 200 && context.getVersion() == version; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(context.getVersion() > version);
+    }
+
+    @Test
+    public void testParallelBuild() throws CreateWordsFilterException {
+        List<WordsCategory> categories = Lists.newArrayList();
+        for (int i = 0; i < 16; i++) {
+            categories.add(new WordsCategory("c" + i, Lists.newArrayList("赌博" + i, "色情" + i)));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            DefaultWordsFilterContext context = DefaultWordsFilterContext.build(FilterType.DFA, categories, ScanMode.PER_FILTER, null, FilterOptions.NONE, pool);
+            Assert.assertEquals(context.getCategoryNames().size(), 16);
+            Assert.assertEquals(context.getBuildTimes().keySet(), context.getCategoryNames());
+            Assert.assertEquals(context.match(false, "赌博3，色情12"), Sets.newHashSet("赌博3", "色情1", "色情12"));
+
+            // Shift-Or 不支持超过64个字的词语，两个分类失败时合并为一个异常，原快照不变
+            String longWord = StringUtils.repeat("赌", 65);
+            List<WordsCategory> invalid = Lists.newArrayList(categories);
+            invalid.set(2, new WordsCategory("c2", Lists.newArrayList(longWord)));
+            invalid.set(9, new WordsCategory("c9", Lists.newArrayList(longWord)));
+
+            DefaultWordsFilterContext shiftOr = DefaultWordsFilterContext.build(FilterType.SHIFT_OR, categories, ScanMode.PER_FILTER, null, FilterOptions.NONE, pool);
+            long version = shiftOr.getVersion();
+            try {
+                shiftOr.reload(invalid);
+                Assert.fail();
+            } catch (CreateWordsFilterException e) {
+                Assert.assertTrue(e.getMessage().contains("[c2, c9]"), e.getMessage());
+                Assert.assertNotNull(e.getCause());
+                Assert.assertEquals(e.getSuppressed().length, 1);
+            }
+            Assert.assertEquals(shiftOr.getVersion(), version);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
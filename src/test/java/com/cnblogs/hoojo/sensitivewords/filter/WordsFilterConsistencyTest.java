@@ -0,0 +1,317 @@
+package com.cnblogs.hoojo.sensitivewords.filter;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.context.DefaultWordsFilterContext;
+import com.cnblogs.hoojo.sensitivewords.context.FilterType;
+import com.cnblogs.hoojo.sensitivewords.exception.CreateWordsFilterException;
+import com.cnblogs.hoojo.sensitivewords.filter.shiftor.ShiftOrFilter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharSource;
+import com.google.common.io.Resources;
+import org.apache.commons.lang3.StringUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 各算法实现与 DFA 实现的匹配结果一致性测试
+ */
+public class WordsFilterConsistencyTest {
+
+    public static final String[] WORDS_FILES = new String[]{
+            "BadWord.txt"
+            , "其他词库.txt"
+            , "反动词库.txt"
+            , "敏感词库大全.txt"
+            , "暴恐词库.txt"
+            , "民生词库.txt"
+            , "色情词库.txt"
+            , "贪腐词库.txt"
+    };
+
+    public static final String TEST_CONTENT_FILE = "test_text.txt";
+
+    public List<WordsCategory> wordsCategoryList = Lists.newArrayList();
+
+    public List<String> testContents = Lists.newArrayList();
+
+    @BeforeClass
+    public void init() throws IOException {
+        for (String wordsFile : WORDS_FILES) {
+            wordsCategoryList.add(createNamedWordsFromResource(wordsFile));
+        }
+
+        String testContent = Resources.toString(Resources.getResource(TEST_CONTENT_FILE), StandardCharsets.UTF_8);
+        testContents.add(testContent);
+        testContents.addAll(Resources.readLines(Resources.getResource(TEST_CONTENT_FILE), StandardCharsets.UTF_8));
+        testContents.add("一举成名走四方的是什么，东南西北风呼呼呼的吹");
+    }
+
+    WordsCategory createNamedWordsFromResource(String resource) {
+        HashSet<String> wordsSet = Sets.newHashSet();
+
+        CharSource charSource = Resources.asCharSource(Resources.getResource(resource), StandardCharsets.UTF_8);
+        try (BufferedReader bufferedReader = charSource.openBufferedStream()) {
+            while (true) {
+                String s = bufferedReader.readLine();
+                if (s == null) {
+                    break;
+                }
+                wordsSet.add(s);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return new WordsCategory(resource, wordsSet);
+    }
+
+    @DataProvider(name = "filterTypes")
+    public Object[][] filterTypes() {
+        return new Object[][]{
+                {FilterType.AHO_CORASICK},
+                {FilterType.DAT},
+                {FilterType.DAAC},
+                {FilterType.TIRE},
+                {FilterType.HASH_BUCKET},
+                {FilterType.TTMP},
+                {FilterType.DAWG},
+                {FilterType.SIMHASH},
+                {FilterType.SHIFT_OR}
+        };
+    }
+
+    /**
+     * 测试使用的词库。Shift-Or 算法只支持总长度有限的短词，从每个词库中选取测试内容中出现的短词，总长度不超过分组上限
+     */
+    List<WordsCategory> categories(FilterType filterType) {
+        if (filterType != FilterType.SHIFT_OR) {
+            return wordsCategoryList;
+        }
+
+        String content = String.join("\n", testContents);
+        // 词语不跨越分组，每个分组最多浪费 (最大词长 - 1) 位，只使用一半的位数
+        int budget = ShiftOrFilter.MAX_GROUPS * Long.SIZE / 2;
+        List<WordsCategory> categories = Lists.newArrayList();
+        for (WordsCategory wordsCategory : wordsCategoryList) {
+            List<String> words = Lists.newArrayList();
+            int length = 0;
+            for (String word : Sets.newTreeSet(wordsCategory.getWords())) {
+                word = StringUtils.trim(word);
+                if (word.length() >= 2 && word.length() <= 8 && length + word.length() <= budget && content.contains(word)) {
+                    words.add(word);
+                    length += word.length();
+                }
+            }
+            if (!words.isEmpty()) {
+                categories.add(new WordsCategory(wordsCategory.getCategory(), words));
+            }
+        }
+        Assert.assertFalse(categories.isEmpty());
+        return categories;
+    }
+
+    @Test(dataProvider = "filterTypes")
+    public void testMatchSameAsDfa(FilterType filterType) throws CreateWordsFilterException {
+        for (WordsCategory wordsCategory : categories(filterType)) {
+            WordsFilter expected = DefaultWordsFilterContext.buildFilter(FilterType.DFA, wordsCategory);
+            WordsFilter actual = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+
+            for (String content : testContents) {
+                // TTMP 支持单字敏感词，DFA 忽略单字，比较时去掉单字结果
+                Set<String> matches = actual.match(false, content);
+                Assert.assertEquals(Sets.filter(matches, word -> word.length() > 1), expected.match(false, content), wordsCategory.getCategory());
+                Assert.assertEquals(actual.contains(false, content), !matches.isEmpty(), wordsCategory.getCategory());
+                if (expected.contains(false, content)) {
+                    Assert.assertTrue(actual.contains(false, content), wordsCategory.getCategory());
+                }
+            }
+        }
+    }
+
+    /**
+     * 部分匹配与 DFA 一致的实现，其余实现的部分匹配有各自的跳过规则
+     */
+    @DataProvider(name = "partMatchTypes")
+    public Object[][] partMatchTypes() {
+        return new Object[][]{
+                {FilterType.AHO_CORASICK},
+                {FilterType.DAT},
+                {FilterType.DAAC},
+                {FilterType.TIRE},
+                {FilterType.DAWG},
+                {FilterType.SHIFT_OR}
+        };
+    }
+
+    @Test(dataProvider = "partMatchTypes")
+    public void testPartMatchSameAsDfa(FilterType filterType) throws CreateWordsFilterException {
+        List<WordsCategory> categories = Lists.newArrayList(categories(filterType));
+        categories.add(new WordsCategory("prefix", Lists.newArrayList("bc", "abcd", "ab", "cd", "abd")));
+        List<String> contents = Lists.newArrayList(testContents);
+        contents.addAll(Lists.newArrayList("abcd", "abc", "xabcdx", "abdcd", "ababcd"));
+
+        for (WordsCategory wordsCategory : categories) {
+            WordsFilter expected = DefaultWordsFilterContext.buildFilter(FilterType.DFA, wordsCategory);
+            WordsFilter actual = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+
+            for (String content : contents) {
+                Assert.assertEquals(actual.match(true, content), expected.match(true, content), wordsCategory.getCategory() + ": " + content);
+                Assert.assertEquals(actual.contains(true, content), expected.contains(true, content), wordsCategory.getCategory() + ": " + content);
+            }
+        }
+    }
+
+    @Test(dataProvider = "filterTypes")
+    public void testOverlappingWords(FilterType filterType) throws CreateWordsFilterException {
+        WordsCategory wordsCategory = new WordsCategory("overlapping",
+                Lists.newArrayList("一举", "一举成名", "一举成名走四方", "成名", "走四方", "东南西北", "东南西北风呼呼呼的吹", "呼呼"));
+        WordsFilter expected = DefaultWordsFilterContext.buildFilter(FilterType.DFA, wordsCategory);
+        WordsFilter actual = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+
+        for (String content : testContents) {
+            Set<String> matches = actual.match(false, content);
+            Assert.assertEquals(matches, expected.match(false, content));
+        }
+        Assert.assertFalse(actual.contains(true, "一二三四五"));
+        Assert.assertTrue(actual.contains(true, "他一举成名"));
+    }
+
+    @Test(dataProvider = "filterTypes")
+    public void testDocumentScannerSameAsWholeScan(FilterType filterType) throws CreateWordsFilterException {
+        String document = String.join("\n", testContents);
+        for (WordsCategory wordsCategory : categories(filterType)) {
+            BaseWordsFilter<?> filter = (BaseWordsFilter<?>) DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+            DocumentScanner scanner = new DocumentScanner(filter, 0, 257, ForkJoinPool.commonPool());
+
+            Assert.assertEquals(scanner.match(false, document), filter.match(false, document), wordsCategory.getCategory());
+            Assert.assertEquals(scanner.contains(false, document), filter.contains(false, document), wordsCategory.getCategory());
+        }
+    }
+
+    @Test(dataProvider = "filterTypes")
+    public void testStreamSameAsWholeScan(FilterType filterType) throws CreateWordsFilterException, IOException {
+        // 内容需要超过一个缓冲区，才能覆盖窗口滑动的情况
+        String document = Strings.repeat(String.join("\n", testContents), 10);
+        for (WordsCategory wordsCategory : categories(filterType)) {
+            WordsFilter filter = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+
+            Assert.assertEquals(filter.match(false, new StringReader(document)), filter.match(false, document), wordsCategory.getCategory());
+            Assert.assertEquals(filter.contains(false, new StringReader(document)), filter.contains(false, document), wordsCategory.getCategory());
+
+            StringWriter writer = new StringWriter();
+            filter.filter(false, new StringReader(document), writer, '*');
+            Assert.assertEquals(writer.toString(), filter.filter(false, document, '*'), wordsCategory.getCategory());
+        }
+    }
+
+    @Test(dataProvider = "filterTypes")
+    public void testScanOffsets(FilterType filterType) throws CreateWordsFilterException {
+        HitBuffer buffer = new HitBuffer();
+        for (WordsCategory wordsCategory : categories(filterType)) {
+            WordsFilter filter = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+
+            for (String content : testContents) {
+                buffer.clear();
+                filter.scan(false, "  " + content, buffer);
+
+                Set<String> words = Sets.newHashSet();
+                for (int i = 0; i < buffer.size(); i++) {
+                    String word = ("  " + content).substring(buffer.getStart(i), buffer.getEnd(i));
+                    Assert.assertEquals(filter.getWord(buffer.getWordId(i)), word, wordsCategory.getCategory());
+                    // 状态给出的编号与按词语查找的编号一致
+                    Assert.assertEquals(filter.getWordId(word, 0, word.length()), buffer.getWordId(i), wordsCategory.getCategory());
+                    words.add(word);
+                }
+                Assert.assertEquals(words, filter.match(false, content), wordsCategory.getCategory());
+            }
+        }
+    }
+
+    @Test(dataProvider = "filterTypes")
+    public void testRewriteFromHits(FilterType filterType) throws CreateWordsFilterException {
+        WordsCategory wordsCategory = new WordsCategory("rewrite", Lists.newArrayList("一举", "一举成名", "成名走", "C++"));
+        WordsFilter filter = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory);
+
+        String content = "他一举成名走四方，学C++";
+        Assert.assertEquals(filter.filter(false, content, '*'), "他*****四方，学***");
+        Assert.assertEquals(filter.highlight(false, content), "他<font color='red'>一举成名走</font>四方，学<font color='red'>C++</font>");
+    }
+
+    @Test
+    public void testSkipNoise() throws CreateWordsFilterException {
+        WordsCategory wordsCategory = new WordsCategory("noise", Lists.newArrayList("法轮功", "成名"));
+        for (FilterType filterType : new FilterType[]{FilterType.DFA, FilterType.TIRE}) {
+            WordsFilter filter = DefaultWordsFilterContext.buildFilter(filterType, wordsCategory, FilterOptions.skipNoise());
+
+            Assert.assertEquals(filter.filter(false, "练法*轮 功的人", '*'), "练*****的人", filterType.name());
+            Assert.assertEquals(filter.filter(false, "一举成**名", '*'), "一举****", filterType.name());
+            // 超过最大间隔的干扰字符不跳过
+            Assert.assertFalse(filter.contains(false, "一举成***名"), filterType.name());
+            Assert.assertTrue(filter.contains(false, "一举成名"), filterType.name());
+
+            // 命中的是词语本身，不是包括干扰字符的区间
+            Assert.assertEquals(filter.match(false, "练法*轮功"), Sets.newHashSet("法轮功"), filterType.name());
+            Assert.assertEquals(filter.getWord(filter.getWordId("法轮功", 0, 3)), "法轮功", filterType.name());
+
+            // 删除的词语跳过干扰字符后同样不再命中
+            BaseWordsFilter<?> base = (BaseWordsFilter<?>) filter;
+            base.removeWords(Lists.newArrayList("法轮功"));
+            Assert.assertTrue(filter.match(false, "练法*轮功").isEmpty(), filterType.name());
+            Assert.assertTrue(filter.match(true, "练法*轮功").isEmpty(), filterType.name());
+            Assert.assertEquals(filter.filter(false, "练法*轮功，一举成*名", '*'), "练法*轮功，一举***", filterType.name());
+        }
+
+        try {
+            DefaultWordsFilterContext.buildFilter(FilterType.DAAC, wordsCategory, FilterOptions.skipNoise());
+            Assert.fail();
+        } catch (CreateWordsFilterException e) {
+            // AC 不支持跳过干扰字符
+        }
+    }
+
+    @Test
+    public void testOffHeap() throws CreateWordsFilterException {
+        for (WordsCategory wordsCategory : wordsCategoryList) {
+            WordsFilter heap = DefaultWordsFilterContext.buildFilter(FilterType.DAAC, wordsCategory);
+            WordsFilter offHeap = DefaultWordsFilterContext.buildFilter(FilterType.DAAC, wordsCategory, FilterOptions.NONE.withOffHeap());
+
+            for (String content : testContents) {
+                Assert.assertEquals(offHeap.match(false, content), heap.match(false, content), wordsCategory.getCategory());
+                Assert.assertEquals(offHeap.filter(true, content, '*'), heap.filter(true, content, '*'), wordsCategory.getCategory());
+            }
+        }
+
+        // 词语编号由自动机给出，与还原的词语互逆
+        WordsFilter offHeap = DefaultWordsFilterContext.buildFilter(FilterType.DAAC, new WordsCategory("offheap", Lists.newArrayList("法轮功", " 成名 ", "法轮功", "赌博")), FilterOptions.NONE.withOffHeap());
+        for (String word : new String[]{"成名", "法轮功", "赌博"}) {
+            int wordId = offHeap.getWordId(word, 0, word.length());
+            Assert.assertTrue(wordId >= 0, word);
+            Assert.assertEquals(offHeap.getWord(wordId), word);
+        }
+        Assert.assertEquals(offHeap.getWordId("法轮", 0, 2), -1);
+
+        // 其他算法不支持堆外存储
+        for (FilterType filterType : new FilterType[]{FilterType.DFA, FilterType.TIRE, FilterType.DAWG}) {
+            try {
+                DefaultWordsFilterContext.buildFilter(filterType, wordsCategoryList.get(0), FilterOptions.NONE.withOffHeap());
+                Assert.fail(filterType.name());
+            } catch (CreateWordsFilterException e) {
+                // 创建过滤器失败
+            }
+        }
+    }
+}
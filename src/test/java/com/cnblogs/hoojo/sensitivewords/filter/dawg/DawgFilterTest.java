@@ -0,0 +1,71 @@
+package com.cnblogs.hoojo.sensitivewords.filter.dawg;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.filter.tire.TireTreeFilter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+import org.apache.commons.lang3.StringUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * DAWG 算法的词尾共享和词语编号测试，匹配结果见 WordsFilterConsistencyTest
+ */
+public class DawgFilterTest {
+
+    private WordsCategory wordsCategory;
+
+    @BeforeClass
+    public void init() throws IOException {
+        wordsCategory = new WordsCategory("敏感词库大全.txt", Resources.readLines(Resources.getResource("敏感词库大全.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSuffixSharing() {
+        DawgFilter dawg = new DawgFilter(new WordsCategory("suffix", Lists.newArrayList("法轮功", "练法轮功", "学法轮功", "气功", "练气功")));
+        // tire tree 需要16个节点（含根节点），共享词尾后只有6个状态：根、练之后、学之后、各处法之后、各处轮和气之后、词语结尾
+        Assert.assertEquals(dawg.getState().getNodeCount(), 6);
+        Assert.assertEquals(dawg.match(false, "他在练法轮功和练气功"), Sets.newHashSet("练法轮功", "法轮功", "练气功", "气功"));
+
+        DawgFilter large = new DawgFilter(wordsCategory);
+        TireTreeFilter tire = new TireTreeFilter(wordsCategory);
+        Assert.assertTrue(large.getState().getNodeCount() < tire.getState().getNodeCount(),
+                large.getState().getNodeCount() + " >= " + tire.getState().getNodeCount());
+    }
+
+    @Test
+    public void testWordIndex() {
+        DawgFilter filter = new DawgFilter(wordsCategory);
+
+        TreeSet<String> sorted = Sets.newTreeSet();
+        for (String word : wordsCategory.getWords()) {
+            if (StringUtils.isNotBlank(word) && StringUtils.trim(word).length() > 1) {
+                sorted.add(StringUtils.trim(word));
+            }
+        }
+        Assert.assertEquals(filter.getState().getWordCount(), sorted.size());
+
+        // 编号即字典序位置，且与还原的词语互逆
+        int expected = 0;
+        for (String word : sorted) {
+            Assert.assertEquals(filter.getWordId(word, 0, word.length()), expected, word);
+            Assert.assertEquals(filter.getWord(expected), word);
+            expected++;
+        }
+        Assert.assertEquals(filter.getWordId("不存在的词语", 0, 6), -1);
+
+        // 增量词语的编号排在词图词语之后
+        List<String> added = Lists.newArrayList("不存在的词语");
+        filter.addWords(added);
+        int wordId = filter.getWordId("不存在的词语", 0, 6);
+        Assert.assertEquals(wordId, sorted.size());
+        Assert.assertEquals(filter.getWord(wordId), "不存在的词语");
+    }
+}
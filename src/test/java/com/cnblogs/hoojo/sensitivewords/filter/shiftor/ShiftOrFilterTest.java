@@ -0,0 +1,109 @@
+package com.cnblogs.hoojo.sensitivewords.filter.shiftor;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.context.DefaultWordsFilterContext;
+import com.cnblogs.hoojo.sensitivewords.context.FilterType;
+import com.cnblogs.hoojo.sensitivewords.exception.CreateWordsFilterException;
+import com.cnblogs.hoojo.sensitivewords.filter.WordsFilter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shift-Or 算法正确性测试，与 DFA 算法在短词小词库上的性能对比见 benchmark 分组
+ */
+public class ShiftOrFilterTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShiftOrFilterTest.class);
+
+    private final List<String> shortWords = Lists.newArrayList();
+
+    private String testContent;
+
+    // 由词库字符随机组成的内容，前缀匹配频繁，树算法需要反复向下查找
+    private String denseContent;
+
+    @BeforeClass(alwaysRun = true)
+    public void init() throws IOException {
+        LinkedHashSet<String> words = new LinkedHashSet<>();
+        for (String line : Resources.readLines(Resources.getResource("色情词库.txt"), StandardCharsets.UTF_8)) {
+            String word = StringUtils.trim(line);
+            if (word.length() >= 2 && word.length() <= 6) {
+                words.add(word);
+            }
+        }
+        shortWords.addAll(words);
+
+        String text = Resources.toString(Resources.getResource("test_text.txt"), StandardCharsets.UTF_8);
+        testContent = Strings.repeat(text, 200) + String.join("，", shortWords.subList(0, 40));
+
+        String chars = String.join("", shortWords.subList(0, 40));
+        Random random = new Random(20181024L);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < testContent.length(); i++) {
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        denseContent = sb.toString();
+    }
+
+    private WordsCategory category(int wordCount) {
+        return new WordsCategory("short-" + wordCount, shortWords.subList(0, wordCount));
+    }
+
+    @Test
+    public void testMatchSameAsDfa() throws CreateWordsFilterException {
+        for (int wordCount : new int[]{1, 8, 40, 120}) {
+            WordsFilter expected = DefaultWordsFilterContext.buildFilter(FilterType.DFA, category(wordCount));
+            WordsFilter actual = DefaultWordsFilterContext.buildFilter(FilterType.SHIFT_OR, category(wordCount));
+
+            Assert.assertEquals(actual.match(false, testContent), expected.match(false, testContent));
+            Assert.assertEquals(actual.match(false, denseContent), expected.match(false, denseContent));
+            Assert.assertEquals(actual.contains(false, testContent), expected.contains(false, testContent));
+            Assert.assertTrue(actual.contains(true, "这是" + shortWords.get(0) + "内容"));
+        }
+    }
+
+    @Test(expectedExceptions = CreateWordsFilterException.class)
+    public void testRefuseOverBudget() throws CreateWordsFilterException {
+        DefaultWordsFilterContext.buildFilter(FilterType.SHIFT_OR, category(shortWords.size()));
+    }
+
+    /**
+     * 与 DFA 的耗时对比，不属于单元测试，默认不执行：mvn test -DskipTests=false -Dgroups=benchmark -DexcludedGroups=
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkAgainstDfa() throws CreateWordsFilterException {
+        for (int wordCount : new int[]{8, 20, 40, 120}) {
+            WordsFilter dfa = DefaultWordsFilterContext.buildFilter(FilterType.DFA, category(wordCount));
+            WordsFilter shiftOr = DefaultWordsFilterContext.buildFilter(FilterType.SHIFT_OR, category(wordCount));
+
+            LOGGER.info("words={} sparse: dfa={}us shift-or={}us, dense: dfa={}us shift-or={}us", new Object[]{wordCount,
+                    time(dfa, testContent) / 1000, time(shiftOr, testContent) / 1000,
+                    time(dfa, denseContent) / 1000, time(shiftOr, denseContent) / 1000});
+        }
+    }
+
+    private long time(WordsFilter filter, String content) {
+        for (int i = 0; i < 50; i++) {
+            filter.match(false, content);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            filter.match(false, content);
+        }
+        return (System.nanoTime() - start) / 100;
+    }
+}
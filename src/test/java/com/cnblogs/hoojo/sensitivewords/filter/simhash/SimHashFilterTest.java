@@ -0,0 +1,73 @@
+package com.cnblogs.hoojo.sensitivewords.filter.simhash;
+
+import com.cnblogs.hoojo.sensitivewords.common.WordsCategory;
+import com.cnblogs.hoojo.sensitivewords.filter.HitBuffer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * simhash 指纹、置换表查找和窗口范围测试
+ */
+public class SimHashFilterTest {
+
+    @Test
+    public void testHash64SameAsBytes() {
+        String content = "法轮功abc练功ABCDEFG的人12";
+        // 覆盖0~3个字符的尾部和非0的开始位置
+        for (int start = 0; start < 4; start++) {
+            for (int end = start; end <= content.length(); end++) {
+                byte[] bytes = content.substring(start, end).getBytes(StandardCharsets.UTF_16LE);
+                Assert.assertEquals(Murmur3.hash64(content, start, end), Murmur3.hash64(bytes), start + "," + end);
+            }
+        }
+    }
+
+    @Test
+    public void testExactWord() {
+        SimHashFilter filter = new SimHashFilter(new WordsCategory("simhash", Lists.newArrayList("法轮功", "成名")));
+
+        Assert.assertTrue(filter.contains(false, "他在练法轮功"));
+        Assert.assertEquals(filter.match(false, "他在练法轮功，一举成名"), Sets.newHashSet("法轮功", "成名"));
+        Assert.assertFalse(filter.contains(false, "法轮大法"));
+    }
+
+    @Test
+    public void testNearDuplicate() {
+        SimHashCacheNode state = new SimHashCacheNode();
+        state.put("法轮功");
+        state.put("一举成名");
+        state.build();
+
+        long fingerprint = SimHashUtils.simhash("法轮功");
+        Assert.assertTrue(state.contains(fingerprint));
+        // 汉明距离小于3的指纹命中，翻转的位分布在不同分段上
+        Assert.assertTrue(state.contains(fingerprint ^ 1L));
+        Assert.assertTrue(state.contains(fingerprint ^ (1L << 5) ^ (1L << 60)));
+        Assert.assertTrue(state.contains(fingerprint ^ (1L << 20) ^ (1L << 40)));
+        // 距离达到阈值时不命中
+        Assert.assertFalse(state.contains(fingerprint ^ 1L ^ (1L << 20) ^ (1L << 40)));
+        Assert.assertFalse(state.contains(fingerprint ^ 0xFFL));
+    }
+
+    @Test
+    public void testWindowCappedAtLongestWord() {
+        SimHashFilter filter = new SimHashFilter(new WordsCategory("simhash", Lists.newArrayList("赌博", "赌博机")));
+        Assert.assertEquals(filter.getState().getMinWordLength(), 2);
+        Assert.assertEquals(filter.getState().getMaxWordLength(), 3);
+
+        // 窗口不超过最长词语，也不超过内容末尾
+        String content = "玩赌博机赌博机器，最后赌博";
+        HitBuffer hits = new HitBuffer();
+        filter.scan(false, content, hits);
+        for (int i = 0; i < hits.size(); i++) {
+            Assert.assertTrue(hits.getEnd(i) - hits.getStart(i) <= 3);
+            Assert.assertTrue(hits.getEnd(i) <= content.length());
+        }
+        Assert.assertEquals(filter.match(false, content), Sets.newHashSet("赌博", "赌博机"));
+        Assert.assertEquals(hits.size(), 5);
+    }
+}